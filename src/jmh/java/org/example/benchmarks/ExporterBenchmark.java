@@ -0,0 +1,113 @@
+package org.example.benchmarks;
+
+import org.example.backend.ExportOptions;
+import org.example.backend.Exporter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Exports synthetic generator output with every exporter, from 100 KB to 500 MB. The document is
+ * read from disk through {@link Exporter#export(String, Reader)}, as a finished run is, so its
+ * size does not count against the heap unless the exporter buffers it.
+ * <p>
+ * Besides operations per second, {@code bytes} reports input bytes exported per second. Run all
+ * sizes with allocation and peak heap figures:
+ * <pre>
+ * mvn -Pbenchmarks package
+ * java -jar target/benchmarks.jar ExporterBenchmark -prof gc -prof org.example.benchmarks.PeakMemoryProfiler
+ * </pre>
+ * or a subset with e.g. {@code -p size=1MB,10MB -p format=pdf}. The largest documents need the
+ * default 8 GB heap of the forked JVM; change it with {@code -jvmArgsAppend -Xmx...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ExporterBenchmark {
+
+    @Param({"100KB", "1MB", "10MB", "100MB", "500MB"})
+    public String size;
+
+    @Param({"md", "txt", "pdf", "docx", "html", "json"})
+    public String format;
+
+    private Path directory;
+    private Path input;
+    private long inputBytes;
+    private String basePath;
+    private Exporter exporter;
+
+    /**
+     * Input bytes exported, reported as a rate next to the operations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Inputs are kept between runs; generating 500 MB takes a while
+        long bytes = SyntheticMarkdown.parseSize(size);
+        input = SyntheticMarkdown.write(Path.of(System.getProperty("java.io.tmpdir"), "docgen-bench-" + size + ".md"), bytes);
+        inputBytes = Files.size(input);
+
+        directory = Files.createTempDirectory("docgen-bench-out");
+        basePath = directory.resolve("DOCUMENTATION").toString();
+        exporter = switch (format) {
+            case "md" -> new ExportOptions.MdExporter();
+            case "txt" -> new ExportOptions.TxtExporter();
+            case "pdf" -> new ExportOptions.PdfExporter();
+            case "docx" -> new ExportOptions.DocExporter();
+            case "html" -> new ExportOptions.HtmlExporter();
+            case "json" -> new ExportOptions.JsonExporter();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void export(Throughput throughput) throws IOException {
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            exporter.export(basePath, reader);
+        }
+        throughput.bytes += inputBytes;
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves one synthetic repository through the parts of the GitHub REST API that
+ * {@code GitHubService} uses: repository, branch, recursive tree and blobs. File sizes follow a
+ * log-normal distribution around a median, and every response is delayed by a base latency plus
+ * random jitter. Contents are generated from the seed, so the same shape always yields the same
+ * repository.
+ */
+final class FakeGitHubServer implements Closeable {
+    static final String OWNER = "bench";
+    static final String REPOSITORY = "synthetic";
+    private static final String COMMIT_SHA = "0000000000000000000000000000000000c0ffee";
+
+    /**
+     * Repository shape: {@code fileCount} Java files whose sizes are log-normal with the given
+     * median and sigma, capped at {@code maxFileBytes}.
+     */
+    record Shape(int fileCount, int medianFileBytes, double sizeSigma, int maxFileBytes, long seed) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration latency;
+    private final Duration jitter;
+    private final long seed;
+    // Blob SHA to file size, and path to blob SHA in listing order
+    private final Map<String, Integer> blobSizes = new HashMap<>();
+    private final Map<String, String> paths = new LinkedHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+
+    FakeGitHubServer(Shape shape, Duration latency, Duration jitter) throws IOException {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.seed = shape.seed();
+
+        Random random = new Random(shape.seed());
+        for (int i = 0; i < shape.fileCount(); i++) {
+            double size = shape.medianFileBytes() * Math.exp(shape.sizeSigma() * random.nextGaussian());
+            int bytes = (int) Math.max(64, Math.min(shape.maxFileBytes(), size));
+            String sha = String.format("%040x", i + 1);
+            blobSizes.put(sha, bytes);
+            paths.put("src/main/java/org/example/module" + (i % 40) + "/Generated" + i + ".java", sha);
+        }
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * API URL to pass to {@code GitHubService}.
+     */
+    String getApiUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    static String repositoryUrl() {
+        return "https://github.com/" + OWNER + "/" + REPOSITORY;
+    }
+
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    long totalBytes() {
+        return blobSizes.values().stream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            long jitterNanos = jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(jitter.toNanos());
+            TimeUnit.NANOSECONDS.sleep(latency.toNanos() + jitterNanos);
+
+            String path = exchange.getRequestURI().getPath();
+            String prefix = "/repos/" + OWNER + "/" + REPOSITORY;
+            ObjectNode body = objectMapper.createObjectNode();
+            if (path.equals(prefix)) {
+                body.put("name", REPOSITORY);
+                body.put("full_name", OWNER + "/" + REPOSITORY);
+                body.put("default_branch", "main");
+                body.put("url", getApiUrl() + prefix);
+                body.putObject("owner").put("login", OWNER);
+            } else if (path.equals(prefix + "/branches/main")) {
+                body.put("name", "main");
+                body.putObject("commit").put("sha", COMMIT_SHA).put("url", getApiUrl() + prefix + "/commits/" + COMMIT_SHA);
+            } else if (path.startsWith(prefix + "/git/trees/")) {
+                body.put("sha", COMMIT_SHA);
+                body.put("truncated", false);
+                ArrayNode tree = body.putArray("tree");
+                paths.forEach((file, sha) -> tree.addObject()
+                        .put("path", file).put("type", "blob").put("sha", sha).put("size", blobSizes.get(sha)));
+            } else if (path.startsWith(prefix + "/git/blobs/")) {
+                String sha = path.substring(path.lastIndexOf('/') + 1);
+                Integer size = blobSizes.get(sha);
+                if (size == null) {
+                    send(exchange, 404, objectMapper.createObjectNode().put("message", "Not Found"));
+                    return;
+                }
+                body.put("sha", sha);
+                body.put("size", size);
+                body.put("encoding", "base64");
+                body.put("content", Base64.getEncoder().encodeToString(source(sha, size).getBytes(StandardCharsets.UTF_8)));
+            } else {
+                send(exchange, 404, objectMapper.createObjectNode().put("message", "Not Found"));
+                return;
+            }
+            send(exchange, 200, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Java-like source of exactly {@code size} bytes.
+     */
+    private String source(String sha, int size) {
+        Random random = new Random(seed ^ sha.hashCode());
+        StringBuilder source = new StringBuilder(size + 128);
+        source.append("package org.example;\n\npublic class C").append(sha, 32, 40).append(" {\n");
+        for (int m = 0; source.length() < size; m++) {
+            source.append("\n    /** Computes value ").append(m).append(". */\n")
+                    .append("    public int method").append(m).append("(int input) {\n")
+                    .append("        int result = input * ").append(random.nextInt(1000)).append(";\n")
+                    .append("        return result + ").append(random.nextInt(1000)).append(";\n")
+                    .append("    }\n");
+        }
+        source.setLength(Math.max(0, size - 2));
+        return source.append("\n}").toString();
+    }
+
+    private void send(HttpExchange exchange, int status, ObjectNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
@@ -0,0 +1,289 @@
+package org.example.benchmarks;
+
+import org.example.backend.DocumentAssembler;
+import org.example.backend.DocumentationCache;
+import org.example.backend.DocumentationGenerator;
+import org.example.backend.DocumentationRecord;
+import org.example.backend.DocumentationRun;
+import org.example.backend.ExportOptions;
+import org.example.backend.Exporter;
+import org.example.backend.MultiFormatExporter;
+import org.example.backend.Settings;
+import org.example.services.GitHubService;
+import org.example.services.StubLlmServer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Runs the whole pipeline (repository listing and blob fetch, generation, export) against a
+ * {@link FakeGitHubServer} and a {@link StubLlmServer}, so throughput can be compared across
+ * changes without network or quota. Each run reports files per minute, per-file LLM latency
+ * percentiles and the heap high-water mark. Warm-up runs are not reported; with {@code --cache}
+ * the later runs measure a warm documentation cache.
+ * <pre>
+ * mvn -Pbenchmarks package
+ * java -cp target/benchmarks.jar org.example.benchmarks.PipelineBenchmark --files 500 --concurrency 16 \
+ *     --llm latency-ms=400,tokens-per-second=150,rate-limit=0.02
+ * </pre>
+ */
+public class PipelineBenchmark {
+    private static final String USAGE = """
+            Usage: PipelineBenchmark [options]
+
+            Repository shape:
+              --files <n>             number of source files (default: 200)
+              --median-size <bytes>   median file size (default: 4096)
+              --size-sigma <value>    log-normal spread of file sizes (default: 1.0)
+              --max-size <bytes>      largest file (default: 200000)
+              --seed <n>              seed of the synthetic repository (default: 1)
+            Latency profiles:
+              --github-latency-ms <n> delay of every GitHub API response (default: 30)
+              --github-jitter-ms <n>  random extra GitHub delay up to this (default: 20)
+              --llm <list>            stub LLM settings, see StubLlmServer.configure
+                                      (default: latency-ms=300,tokens-per-second=200,completion-tokens=300)
+            Pipeline:
+              --concurrency <n>       LLM requests in flight (default: 8)
+              --fetch-concurrency <n> blob downloads in flight (default: 8)
+              --max-tokens <n>        completion limit per request (default: 1000)
+              --model <name>          model name, which sets the context window (default: llama3-70b-8192)
+              --formats <list>        export formats: md, txt, pdf, docx, html, json (default: md,html,json)
+              --cache                 keep a documentation cache across runs
+              --blob-cache            keep a blob cache across runs
+              --warmup <n>            unreported runs first (default: 1)
+              --runs <n>              measured runs (default: 3)
+              --verbose               print the pipeline log
+            """;
+
+    private int files = 200;
+    private int medianSize = 4096;
+    private double sizeSigma = 1.0;
+    private int maxSize = 200_000;
+    private long seed = 1;
+    private int githubLatencyMillis = 30;
+    private int githubJitterMillis = 20;
+    private String llm = "latency-ms=300,tokens-per-second=200,completion-tokens=300";
+    private int concurrency = 8;
+    private int fetchConcurrency = GitHubService.DEFAULT_FETCH_CONCURRENCY;
+    private int maxTokens = 1000;
+    private String model = "llama3-70b-8192";
+    private List<String> formats = List.of("md", "html", "json");
+    private boolean cache;
+    private boolean blobCache;
+    private int warmup = 1;
+    private int runs = 3;
+    private boolean verbose;
+
+    /**
+     * Measurements of one run.
+     */
+    private record RunResult(int files, Duration generation, Duration export, long p50Millis, long p99Millis,
+                             long peakHeapBytes, long llmRequests, long githubRequests) {
+        Duration total() {
+            return generation.plus(export);
+        }
+
+        double filesPerMinute() {
+            return files * 60_000.0 / Math.max(1, total().toMillis());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PipelineBenchmark benchmark = new PipelineBenchmark();
+        try {
+            if (!benchmark.parse(args)) {
+                System.out.print(USAGE);
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        benchmark.run();
+        // The GitHub client keeps non-daemon threads alive
+        System.exit(0);
+    }
+
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--help", "-h" -> {
+                    return false;
+                }
+                case "--files" -> files = positive(args, ++i, arg);
+                case "--median-size" -> medianSize = positive(args, ++i, arg);
+                case "--size-sigma" -> sizeSigma = Double.parseDouble(value(args, ++i, arg));
+                case "--max-size" -> maxSize = positive(args, ++i, arg);
+                case "--seed" -> seed = Long.parseLong(value(args, ++i, arg));
+                case "--github-latency-ms" -> githubLatencyMillis = Integer.parseInt(value(args, ++i, arg));
+                case "--github-jitter-ms" -> githubJitterMillis = Integer.parseInt(value(args, ++i, arg));
+                case "--llm" -> llm = value(args, ++i, arg);
+                case "--concurrency" -> concurrency = positive(args, ++i, arg);
+                case "--fetch-concurrency" -> fetchConcurrency = positive(args, ++i, arg);
+                case "--max-tokens" -> maxTokens = positive(args, ++i, arg);
+                case "--model" -> model = value(args, ++i, arg);
+                case "--formats" -> formats = List.of(value(args, ++i, arg).split(","));
+                case "--cache" -> cache = true;
+                case "--blob-cache" -> blobCache = true;
+                case "--warmup" -> warmup = Integer.parseInt(value(args, ++i, arg));
+                case "--runs" -> runs = positive(args, ++i, arg);
+                case "--verbose" -> verbose = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        for (String format : formats) {
+            exporter(format, null);
+        }
+        return true;
+    }
+
+    private void run() throws Exception {
+        Path workDir = Files.createTempDirectory("docgen-pipeline-bench");
+        FakeGitHubServer.Shape shape = new FakeGitHubServer.Shape(files, medianSize, sizeSigma, maxSize, seed);
+
+        try (FakeGitHubServer github = new FakeGitHubServer(shape, Duration.ofMillis(githubLatencyMillis),
+                Duration.ofMillis(githubJitterMillis));
+             StubLlmServer llmServer = new StubLlmServer()) {
+            llmServer.configure(llm);
+            llmServer.start();
+
+            DocumentationCache documentationCache = cache
+                    ? new DocumentationCache(workDir.resolve("doc-cache"), Long.MAX_VALUE)
+                    : null;
+            System.out.printf(Locale.ROOT, "Repository: %d files, %.1f MB; LLM: %s; concurrency %d%n",
+                    files, github.totalBytes() / 1e6, llm, concurrency);
+            System.out.println("run  files/min  generate_ms  export_ms  p50_ms  p99_ms  heap_peak_mb  llm_requests  github_requests");
+
+            List<RunResult> results = new ArrayList<>();
+            for (int i = 0; i < warmup + runs; i++) {
+                RunResult result = runOnce(github, llmServer, documentationCache, workDir);
+                boolean measured = i >= warmup;
+                if (measured) {
+                    results.add(result);
+                }
+                System.out.printf(Locale.ROOT, "%-4s %9.1f %12d %10d %7d %7d %13.1f %13d %16d%n",
+                        measured ? Integer.toString(i - warmup + 1) : "w" + (i + 1),
+                        result.filesPerMinute(), result.generation().toMillis(), result.export().toMillis(),
+                        result.p50Millis(), result.p99Millis(), result.peakHeapBytes() / 1e6,
+                        result.llmRequests(), result.githubRequests());
+            }
+
+            double[] throughput = results.stream().mapToDouble(RunResult::filesPerMinute).sorted().toArray();
+            System.out.printf(Locale.ROOT, "Median %.1f files/min (min %.1f, max %.1f), heap high-water %.1f MB%n",
+                    throughput[throughput.length / 2], throughput[0], throughput[throughput.length - 1],
+                    results.stream().mapToLong(RunResult::peakHeapBytes).max().orElse(0) / 1e6);
+        } finally {
+            try (Stream<Path> paths = Files.walk(workDir)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private RunResult runOnce(FakeGitHubServer github, StubLlmServer llmServer, DocumentationCache documentationCache,
+                              Path workDir) throws IOException, InterruptedException {
+        Settings settings = new Settings("", 0.2, maxTokens, model);
+        settings.setConcurrency(concurrency);
+        settings.setBaseUrl(llmServer.getBaseUrl());
+        GitHubService gitHubService = new GitHubService(github.getApiUrl(),
+                blobCache ? workDir.resolve("blob-cache") : null, fetchConcurrency);
+        DocumentationGenerator generator = new DocumentationGenerator(FakeGitHubServer.repositoryUrl(),
+                workDir.toString(), null, settings, documentationCache, gitHubService);
+        generator.setJournalDirectory(null);
+        Consumer<String> logger = verbose ? System.err::println : message -> { };
+
+        long llmRequestsBefore = llmServer.getRequestCount();
+        long githubRequestsBefore = github.getRequestCount();
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        Duration generation;
+        Duration export;
+        try (DocumentAssembler document = generator.generateDocument(logger)) {
+            generation = Duration.ofNanos(System.nanoTime() - start);
+
+            Map<String, Exporter> exporters = new LinkedHashMap<>();
+            for (String format : formats) {
+                exporters.put(format, exporter(format, generator.getLastRun()));
+            }
+            long exportStart = System.nanoTime();
+            List<MultiFormatExporter.ExportResult> exports = new MultiFormatExporter(exporters)
+                    .exportAll(workDir.resolve("DOCUMENTATION").toString(), document::openReader, logger);
+            export = Duration.ofNanos(System.nanoTime() - exportStart);
+            for (MultiFormatExporter.ExportResult result : exports) {
+                if (!result.succeeded()) {
+                    throw new IOException(result.format() + " export failed", result.error());
+                }
+            }
+        }
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        DocumentationRun run = generator.getLastRun();
+        long[] latencies = run.files().values().stream()
+                .mapToLong(DocumentationRecord::latencyMillis)
+                .filter(latency -> latency >= 0)
+                .sorted()
+                .toArray();
+        return new RunResult(run.files().size(), generation, export, percentile(latencies, 0.50),
+                percentile(latencies, 0.99), peakHeap, llmServer.getRequestCount() - llmRequestsBefore,
+                github.getRequestCount() - githubRequestsBefore);
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values, or -1 when there are none (e.g. all cached).
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static Exporter exporter(String format, DocumentationRun run) {
+        return switch (format) {
+            case "md" -> new ExportOptions.MdExporter();
+            case "txt" -> new ExportOptions.TxtExporter();
+            case "pdf" -> new ExportOptions.PdfExporter();
+            case "docx" -> new ExportOptions.DocExporter();
+            case "html" -> new ExportOptions.HtmlExporter();
+            case "json" -> new ExportOptions.JsonExporter(run, false);
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static int positive(String[] args, int index, String option) {
+        int value = Integer.parseInt(value(args, index, option));
+        if (value <= 0) {
+            throw new IllegalArgumentException(option + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.benchmarks;
+
+import org.example.backend.DocumentAssembler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes documents shaped like the generator's output: a repository heading, then one section per
+ * file with the headings, prose, inline formatting, lists, tables and code blocks an LLM typically
+ * answers with. The text is ASCII and seeded, so a given size always produces the same bytes.
+ */
+final class SyntheticMarkdown {
+    private static final String[] WORDS = {"the", "method", "returns", "a", "list", "of", "entries", "for",
+            "each", "request", "and", "validates", "its", "input", "before", "writing", "to", "the", "cache",
+            "handler", "configuration", "is", "loaded", "once", "when", "service", "starts", "value", "null"};
+    private static final String[] TYPES = {"Service", "Repository", "Controller", "Handler", "Parser", "Client"};
+
+    private SyntheticMarkdown() {
+    }
+
+    /**
+     * Parses sizes such as {@code 100KB}, {@code 10MB} or {@code 1GB} into bytes.
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        }
+        return Long.parseLong(value.replaceAll("[A-Z]+$", "")) * unit;
+    }
+
+    /**
+     * Writes a document of at least {@code bytes} bytes to {@code file}, or reuses the file if an
+     * earlier run already wrote one of that size.
+     */
+    static Path write(Path file, long bytes) throws IOException {
+        if (Files.exists(file) && Files.size(file) >= bytes && Files.size(file) < bytes + (64 << 10)) {
+            return file;
+        }
+        Random random = new Random(bytes);
+        try (CountingWriter out = new CountingWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.write("# Documentation for Repository: https://github.com/example/synthetic\n\n");
+            for (int n = 0; out.count < bytes; n++) {
+                if (n > 0) {
+                    out.write(DocumentAssembler.SECTION_SEPARATOR);
+                }
+                section(out, random, n);
+            }
+        }
+        return file;
+    }
+
+    private static void section(Writer out, Random random, int n) throws IOException {
+        String type = "Example" + TYPES[n % TYPES.length] + n;
+        out.write(DocumentAssembler.FILE_HEADING + "src/main/java/org/example/module" + (n % 50) + "/" + type + ".java\n\n");
+
+        out.write("### Overview\n\n");
+        out.write("`" + type + "` " + sentence(random, 25) + " It is **" + word(random) + "** and *"
+                + word(random) + "* by design.\n\n");
+        out.write(sentence(random, 40) + "\n\n");
+
+        out.write("### Responsibilities\n\n");
+        for (int i = 0; i < 3 + random.nextInt(4); i++) {
+            out.write("- **" + word(random) + "**: " + sentence(random, 12) + "\n");
+        }
+        out.write("\n### Methods\n\n");
+        for (int m = 0; m < 2 + random.nextInt(4); m++) {
+            String method = word(random) + Character.toUpperCase(word(random).charAt(0)) + m;
+            out.write("#### `" + method + "(String " + word(random) + ")`\n\n");
+            out.write(sentence(random, 20) + "\n\n");
+            out.write("| Parameter | Type | Description |\n|-----------|------|-------------|\n");
+            for (int p = 0; p < 1 + random.nextInt(3); p++) {
+                out.write("| `" + word(random) + "` | `String` | " + sentence(random, 8) + " |\n");
+            }
+            out.write("\n1. " + sentence(random, 10) + "\n2. " + sentence(random, 10) + "\n\n");
+        }
+
+        out.write("### Example\n\n```java\n");
+        out.write(type + " instance = new " + type + "();\n");
+        for (int i = 0; i < 4 + random.nextInt(8); i++) {
+            out.write("instance." + word(random) + "(\"" + word(random) + "\");\n");
+        }
+        out.write("```\n\n" + sentence(random, 15) + "\n");
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = word(random);
+            if (i == 0) {
+                sentence.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                sentence.append(' ').append(i % 9 == 0 ? "`" + word + "`" : word);
+            }
+        }
+        return sentence.append('.').toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static final class CountingWriter extends BufferedWriter {
+        private long count;
+
+        CountingWriter(Writer out) {
+            super(out, 1 << 16);
+        }
+
+        @Override
+        public void write(String text) throws IOException {
+            super.write(text);
+            // ASCII only, so characters equal bytes
+            count += text.length();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.example;
 
+import org.example.cli.HeadlessMain;
 import org.example.documentGenerator.ui.DocumentationGeneratorUI;
 
 import javax.swing.*;
@@ -8,6 +9,11 @@ import javax.swing.*;
 // click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
 public class Main {
     public static void main(String[] args) {
+        // Any arguments select the headless command line, which never loads Swing
+        if (args.length > 0) {
+            System.exit(HeadlessMain.run(args));
+        }
+
         //TIP Press <shortcut actionId="ShowIntentionActions"/> with your caret at the highlighted text
         // to see how IntelliJ IDEA suggests fixing it.
         SwingUtilities.invokeLater(() -> {
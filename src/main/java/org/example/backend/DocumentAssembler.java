@@ -0,0 +1,255 @@
+package org.example.backend;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Builds the repository documentation in a temporary file instead of on the heap. Sections are
+ * appended in whatever order they complete and located through an in-memory index of offsets;
+ * readers see them sorted by file path. Heap use is proportional to the number of sections, not
+ * to the size of the document.
+ */
+public class DocumentAssembler implements Closeable {
+    public static final String FILE_HEADING = "## File: ";
+    public static final String SECTION_SEPARATOR = "\n\n---\n\n";
+
+    /**
+     * Receives the sections of a document read by {@link #readSections(Reader, SectionHandler)}.
+     */
+    @FunctionalInterface
+    public interface SectionHandler {
+        void section(String fileName, String documentation) throws IOException;
+    }
+
+    /**
+     * Location of one section in the backing file. The body excludes heading and separator.
+     */
+    private record Entry(long offset, long length, long bodyOffset, long bodyLength) {
+    }
+
+    private final FileChannel channel;
+    private final byte[] header;
+    private final TreeMap<String, Entry> index = new TreeMap<>();
+    private long position;
+
+    public DocumentAssembler(String repoUrl) throws IOException {
+        Path file = Files.createTempFile("docgen-", ".md");
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        this.header = ("# Documentation for Repository: " + repoUrl + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the documentation for a file, replacing any earlier section for the same path.
+     */
+    public void addSection(String fileName, String documentation) throws IOException {
+        byte[] heading = (FILE_HEADING + fileName + "\n\n").getBytes(StandardCharsets.UTF_8);
+        byte[] body = documentation.getBytes(StandardCharsets.UTF_8);
+        byte[] separator = SECTION_SEPARATOR.getBytes(StandardCharsets.UTF_8);
+
+        long length = heading.length + body.length + separator.length;
+        long offset;
+        synchronized (this) {
+            offset = position;
+            position += length;
+        }
+
+        // Space is reserved above, so concurrent writers never overlap
+        writeFully(ByteBuffer.wrap(heading), offset);
+        writeFully(ByteBuffer.wrap(body), offset + heading.length);
+        writeFully(ByteBuffer.wrap(separator), offset + heading.length + body.length);
+
+        synchronized (this) {
+            index.put(fileName, new Entry(offset, length, offset + heading.length, body.length));
+        }
+    }
+
+    /**
+     * Drops a file's section from the document. Its bytes stay in the backing file unused.
+     */
+    public synchronized void removeSection(String fileName) {
+        index.remove(fileName);
+    }
+
+    public synchronized Set<String> sectionNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(index.keySet()));
+    }
+
+    public synchronized int sectionCount() {
+        return index.size();
+    }
+
+    /**
+     * Size in bytes of the assembled document as returned by {@link #openStream()}.
+     */
+    public synchronized long size() {
+        long size = header.length;
+        for (Entry entry : index.values()) {
+            size += entry.length();
+        }
+        return size;
+    }
+
+    /**
+     * Reads back the documentation body of one file, or {@code null} if there is none.
+     */
+    public String readSection(String fileName) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = index.get(fileName);
+        }
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = new SliceInputStream(entry.bodyOffset(), entry.bodyLength())) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads every section body in path order, one at a time.
+     */
+    public Map<String, String> readSections() throws IOException {
+        Map<String, String> sections = new LinkedHashMap<>();
+        for (String name : sectionNames()) {
+            sections.put(name, readSection(name));
+        }
+        return sections;
+    }
+
+    /**
+     * Streams the whole document (header, then sections sorted by path) from disk.
+     */
+    public InputStream openStream() {
+        List<InputStream> parts = new ArrayList<>();
+        parts.add(new ByteArrayInputStream(header));
+        synchronized (this) {
+            for (Entry entry : index.values()) {
+                parts.add(new SliceInputStream(entry.offset(), entry.length()));
+            }
+        }
+        return new SequenceInputStream(Collections.enumeration(parts));
+    }
+
+    public Reader openReader() {
+        return new InputStreamReader(openStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Materialises the whole document as a string, for consumers that need one (e.g. a text area).
+     */
+    public String readAll() throws IOException {
+        try (InputStream in = openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Splits an assembled document into file sections line by line, handing each one over as soon
+     * as it is complete, so only one section is held in memory. Follows the same rules as
+     * {@link DocumentationGenerator#parseSections(String)}.
+     */
+    public static void readSections(Reader document, SectionHandler handler) throws IOException {
+        BufferedReader reader = document instanceof BufferedReader buffered ? buffered : new BufferedReader(document);
+        String fileName = null;
+        StringBuilder body = new StringBuilder();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            boolean startsSection = line.startsWith(FILE_HEADING)
+                    && (fileName == null || endsWith(body, SECTION_SEPARATOR));
+            if (!startsSection) {
+                if (fileName != null) {
+                    body.append(line).append('\n');
+                }
+                continue;
+            }
+            if (fileName != null) {
+                body.setLength(body.length() - SECTION_SEPARATOR.length());
+                handler.section(fileName, body.toString().strip());
+            }
+            fileName = line.substring(FILE_HEADING.length()).trim();
+            body.setLength(0);
+            body.append('\n');
+        }
+
+        if (fileName != null) {
+            String last = body.toString().stripTrailing();
+            String separator = SECTION_SEPARATOR.stripTrailing();
+            if (last.endsWith(separator)) {
+                last = last.substring(0, last.length() - separator.length());
+            }
+            handler.section(fileName, last.strip());
+        }
+    }
+
+    private static boolean endsWith(StringBuilder text, String suffix) {
+        int start = text.length() - suffix.length();
+        return start >= 0 && text.indexOf(suffix, start) == start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * Reads a byte range of the backing file with positional reads, so any number of streams can
+     * be open on the shared channel at once.
+     */
+    private class SliceInputStream extends InputStream {
+        private long position;
+        private final long end;
+
+        SliceInputStream(long offset, long length) {
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, n), position);
+            if (read < 0) {
+                return -1;
+            }
+            position += read;
+            return read;
+        }
+    }
+}
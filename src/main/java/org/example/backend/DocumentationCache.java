@@ -0,0 +1,185 @@
+package org.example.backend;
+
+import org.example.services.OpenAIService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of generated documentation sections, keyed on a SHA-256 of everything that
+ * influences the LLM output. Entries live as one file per key and are evicted least-recently-used
+ * once the directory grows beyond its byte budget. Safe for concurrent use.
+ */
+public class DocumentationCache {
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final String SUFFIX = ".md";
+
+    private static DocumentationCache defaultCache;
+
+    private final Path directory;
+    private final long maxBytes;
+    // Key -> entry size in bytes, iterated from least to most recently used
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public DocumentationCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * Returns the process-wide cache stored under {@code ~/.docgen_doc_cache}.
+     */
+    public static synchronized DocumentationCache defaultCache() {
+        if (defaultCache == null) {
+            try {
+                defaultCache = new DocumentationCache(
+                        Path.of(System.getProperty("user.home"), ".docgen_doc_cache"), DEFAULT_MAX_BYTES);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open documentation cache", e);
+            }
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Builds the cache key for a fully rendered prompt under the given model settings. Answers from
+     * another provider than the default one are kept apart, even for the same model name.
+     */
+    public static String key(String prompt, Settings settings) {
+        String key = sha256(settings.getModel(), Double.toString(settings.getTemperature()),
+                Integer.toString(settings.getMaxTokens()), OpenAIService.SYSTEM_MESSAGE, prompt);
+        if (settings.getBaseUrl() == null || settings.getBaseUrl().equals(Settings.DEFAULT_BASE_URL)) {
+            return key;
+        }
+        return sha256(settings.getBaseUrl(), key);
+    }
+
+    /**
+     * Hex SHA-256 of the given strings, each separated by a zero byte.
+     */
+    static String sha256(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    digest.update((byte) 0);
+                }
+                digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns the cached section for {@code key}, or {@code null} on a miss.
+     */
+    public String get(String key) {
+        synchronized (this) {
+            if (index.get(key) == null) {
+                return null;
+            }
+        }
+        Path file = fileFor(key);
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return content;
+        } catch (NoSuchFileException e) {
+            forget(key);
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores a section, evicting least recently used entries if the byte budget is exceeded.
+     * Failures to write are ignored; the cache is only an optimisation.
+     */
+    public void put(String key, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Path file = fileFor(key);
+        try {
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = index.put(key, (long) bytes.length);
+            totalBytes += bytes.length - (previous == null ? 0 : previous);
+
+            Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String k : evicted) {
+            try {
+                Files.deleteIfExists(fileFor(k));
+            } catch (IOException ignored) {
+                // Orphaned entries are picked up again on the next load
+            }
+        }
+    }
+
+    private synchronized void forget(String key) {
+        Long size = index.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private void load() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(directory)) {
+            entries = stream.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).toList();
+        }
+
+        List<Map.Entry<Path, FileTime>> byAge = new ArrayList<>();
+        for (Path p : entries) {
+            byAge.add(Map.entry(p, Files.getLastModifiedTime(p)));
+        }
+        byAge.sort(Comparator.comparing(Map.Entry::getValue));
+
+        for (Map.Entry<Path, FileTime> e : byAge) {
+            String name = e.getKey().getFileName().toString();
+            long size = Files.size(e.getKey());
+            index.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            totalBytes += size;
+        }
+    }
+}
@@ -1,59 +1,802 @@
 package org.example.backend;
 
+import org.example.metrics.PipelineMetrics;
+import org.example.services.Completion;
+import org.example.services.GitDiffService;
 import org.example.services.GitHubService;
 import org.example.services.OpenAIService;
+import org.example.services.PartialResponseException;
+import org.example.services.SourceChunker;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 public class DocumentationGenerator {
+    private static final String FILE_HEADING = DocumentAssembler.FILE_HEADING;
+    private static final String SECTION_SEPARATOR = DocumentAssembler.SECTION_SEPARATOR;
+    // Most files packed into one request; a file is small enough to pack below maxTokens / this
+    private static final int MAX_BATCH_FILES = 8;
+    // Assumptions used by plan(); measured runs are the better guide once available
+    private static final int PLAN_MIN_COMPLETION_TOKENS = 200;
+    private static final double PLAN_REQUEST_OVERHEAD_SECONDS = 1.0;
+    private static final double PLAN_OUTPUT_TOKENS_PER_SECOND = 200;
+
     private final String repoUrl;
     private final String outputPath;
     private final GitHubService gitHubService;
     private final OpenAIService openAIService;
     private final String customPrompt;
+    private final Settings appSettings;
+    private final DocumentationCache cache;
+    private String lastCommitSha;
+    private Instant lastRunStarted;
+    // Provenance of every section documented by the most recent run
+    private final Map<String, DocumentationRecord> records = new ConcurrentHashMap<>();
+    private BiConsumer<String, String> tokenListener;
+    private RequestScheduler.Lane requestLane;
+    private Path journalDirectory = Path.of(System.getProperty("user.home"), ".docgen_journal");
+    private boolean resume;
 
     public DocumentationGenerator(String repoUrl, String outputPath, String customPrompt, Settings appSettings) {
+        this(repoUrl, outputPath, customPrompt, appSettings, DocumentationCache.defaultCache());
+    }
+
+    public DocumentationGenerator(String repoUrl, String outputPath, String customPrompt, Settings appSettings,
+                                  DocumentationCache cache) {
+        this(repoUrl, outputPath, customPrompt, appSettings, cache, new GitHubService());
+    }
+
+    /**
+     * Creates a generator reading repositories through {@code gitHubService}, e.g. one pointed at
+     * a GitHub Enterprise or stub API URL.
+     */
+    public DocumentationGenerator(String repoUrl, String outputPath, String customPrompt, Settings appSettings,
+                                  DocumentationCache cache, GitHubService gitHubService) {
         this.repoUrl = repoUrl;
         this.outputPath = outputPath;
-        this.gitHubService = new GitHubService();
+        this.gitHubService = gitHubService;
         this.openAIService = new OpenAIService(appSettings);
         this.customPrompt = customPrompt;
+        this.appSettings = appSettings;
+        this.cache = cache;
     }
 
     public String generate(Consumer<String> logger) throws IOException, InterruptedException {
+        try (DocumentAssembler document = generateDocument(logger)) {
+            return document.sectionCount() == 0 ? "" : document.readAll();
+        }
+    }
+
+    /**
+     * Generates the documentation into a disk-backed {@link DocumentAssembler}, writing each
+     * section as soon as it completes. The caller owns the returned document and must close it.
+     */
+    public DocumentAssembler generateDocument(Consumer<String> logger) throws IOException, InterruptedException {
         logger.accept("Fetching repository files...");
-        Map<String, String> files = gitHubService.getRepositoryFilesContent(repoUrl);
+        GitHubService.RepositorySnapshot snapshot = gitHubService.listRepository(repoUrl);
+        startRun(snapshot.commitSha());
+        Map<String, String> files = gitHubService.getFilesContent(snapshot);
+        Map<String, String> blobShas = new HashMap<>();
+        for (GitHubService.SourceFile file : snapshot.files()) {
+            blobShas.put(file.path(), file.blobSha());
+        }
 
+        DocumentAssembler document = new DocumentAssembler(repoUrl);
         if (files.isEmpty()) {
             logger.accept("No source files found in the repository.");
-            return "";
+            return document;
+        }
+
+        try {
+            documentFiles(files, blobShas, document, logger);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+
+        //Path outputFile = Paths.get(outputPath, "DOCUMENTATION.md");
+        //Files.writeString(outputFile, finalDoc.toString());
+        //logger.accept("Documentation saved to " + outputFile.toAbsolutePath());
+
+        return document;
+    }
+
+    /**
+     * Regenerates documentation only for files that changed since the commit recorded in
+     * {@code previousExport}, a JSON or NDJSON export of an earlier run of this repository.
+     * Sections of deleted files are dropped; sections of untouched files are copied into the
+     * returned document together with their {@link DocumentationRecord}s, so
+     * {@link #getLastRun()} covers the whole document. The caller owns the returned document and
+     * must close it.
+     */
+    public DocumentAssembler generateIncremental(Path previousExport, Consumer<String> logger)
+            throws IOException, InterruptedException {
+        logger.accept("Reading previous documentation from " + previousExport + "...");
+        DocumentAssembler document = new DocumentAssembler(repoUrl);
+        try {
+            DocumentationRun previous = ExportOptions.JsonExporter.read(previousExport, document);
+            if (previous.commitSha() == null) {
+                throw new IllegalArgumentException(previousExport + " does not record the commit it documents");
+            }
+            if (previous.repository() != null && !previous.repository().equals(repoUrl)) {
+                throw new IllegalArgumentException(previousExport + " documents " + previous.repository());
+            }
+
+            logger.accept("Computing changes since " + previous.commitSha() + "...");
+            GitDiffService.ChangeSet changes = new GitDiffService(gitHubService).diffSince(repoUrl, previous.commitSha());
+            startRun(changes.headSha());
+
+            for (String fileName : changes.deletedFiles()) {
+                document.removeSection(fileName);
+            }
+            for (String fileName : changes.changedFiles().keySet()) {
+                document.removeSection(fileName);
+            }
+            for (String fileName : document.sectionNames()) {
+                DocumentationRecord record = previous.files().get(fileName);
+                if (record != null) {
+                    records.put(fileName, record);
+                }
+            }
+            logger.accept(changes.changedFiles().size() + " changed, " + changes.deletedFiles().size()
+                    + " deleted, " + document.sectionCount() + " reused");
+
+            if (!changes.changedFiles().isEmpty()) {
+                documentFiles(changes.changedFiles(), changes.blobShas(), document, logger);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+        return document;
+    }
+
+    /**
+     * Estimates what {@link #generateDocument} would cost for the repository as it is now, from the
+     * file listing alone: no file content is downloaded and the LLM is not called. File sizes stand
+     * in for content, files are chunked and packed the way a real run would do it, and every file is
+     * assumed to miss the cache.
+     */
+    public DocumentationPlan plan(Consumer<String> logger) throws IOException {
+        logger.accept("Listing repository files...");
+        GitHubService.RepositorySnapshot snapshot = gitHubService.listRepository(repoUrl);
+        List<GitHubService.SourceFile> files = new ArrayList<>(snapshot.files());
+        files.sort(Comparator.comparing(GitHubService.SourceFile::path));
+        ToIntFunction<GitHubService.SourceFile> contentTokens = file -> (int) Math.min(Integer.MAX_VALUE / 2, file.size() / 4 + 1);
+
+        RequestEstimate estimate = new RequestEstimate(OpenAIService.estimateTokens(OpenAIService.SYSTEM_MESSAGE));
+        int chunkedFiles = 0;
+        int batchedFiles = 0;
+
+        for (List<GitHubService.SourceFile> batch : packBatches(files, contentTokens)) {
+            if (batch.size() > 1) {
+                Map<String, String> paths = new LinkedHashMap<>();
+                int tokens = 0;
+                int completion = 0;
+                for (GitHubService.SourceFile file : batch) {
+                    paths.put(file.path(), "");
+                    tokens += contentTokens.applyAsInt(file);
+                    completion += expectedCompletionTokens(contentTokens.applyAsInt(file));
+                }
+                estimate.request(OpenAIService.estimateTokens(openAIService.buildBatchPrompt(paths, customPrompt)) + tokens,
+                        Math.min(appSettings.getMaxTokens(), completion));
+                batchedFiles += batch.size();
+                continue;
+            }
+
+            GitHubService.SourceFile file = batch.get(0);
+            int tokens = contentTokens.applyAsInt(file);
+            String chunkPrompt = openAIService.buildChunkPrompt(file.path(), "", 1, 1, customPrompt);
+            int budget = promptBudget(chunkPrompt);
+            if (budget <= 0 || tokens <= budget) {
+                estimate.request(OpenAIService.estimateTokens(openAIService.buildPrompt(file.path(), "", customPrompt)) + tokens,
+                        expectedCompletionTokens(tokens));
+                continue;
+            }
+
+            chunkedFiles++;
+            int parts = (tokens + budget - 1) / budget;
+            List<Integer> docs = new ArrayList<>();
+            for (int i = 0; i < parts; i++) {
+                int completion = expectedCompletionTokens(tokens / parts);
+                estimate.request(OpenAIService.estimateTokens(chunkPrompt) + tokens / parts, completion);
+                docs.add(completion);
+            }
+            int mergeOverhead = OpenAIService.estimateTokens(openAIService.buildMergePrompt(file.path(), List.of(), customPrompt));
+            while (docs.size() > 1) {
+                List<Integer> merged = new ArrayList<>();
+                for (List<Integer> group : mergeGroups(file.path(), docs, Integer::intValue)) {
+                    int groupTokens = group.stream().mapToInt(Integer::intValue).sum();
+                    int completion = Math.min(appSettings.getMaxTokens(), groupTokens);
+                    estimate.request(mergeOverhead + groupTokens, completion);
+                    merged.add(completion);
+                }
+                docs = merged;
+            }
+        }
+
+        int concurrency = appSettings.getConcurrency();
+        double requestsPerMinute = openAIService.getRateLimiter().getRequestsPerMinute();
+        double tokensPerMinute = openAIService.getRateLimiter().getTokensPerMinute();
+
+        // The slowest of the three limits decides how long the run takes
+        double seconds = estimate.latencySeconds / concurrency;
+        String bottleneck = "concurrency";
+        double requestSeconds = estimate.requests * 60 / requestsPerMinute;
+        if (requestSeconds > seconds) {
+            seconds = requestSeconds;
+            bottleneck = "requests per minute";
+        }
+        double tokenSeconds = (estimate.promptTokens + estimate.completionTokens) * 60 / tokensPerMinute;
+        if (tokenSeconds > seconds) {
+            seconds = tokenSeconds;
+            bottleneck = "tokens per minute";
+        }
+
+        DocumentationPlan plan = new DocumentationPlan(repoUrl, snapshot.commitSha(), files.size(), chunkedFiles,
+                batchedFiles, estimate.requests, estimate.promptTokens, estimate.completionTokens, concurrency,
+                requestsPerMinute, tokensPerMinute, Duration.ofMillis((long) (seconds * 1000)), bottleneck);
+        logger.accept(plan.summary());
+        return plan;
+    }
+
+    /**
+     * Running totals of the requests a plan expects. Latency is modelled as a fixed overhead plus
+     * the time to generate the completion.
+     */
+    private static class RequestEstimate {
+        private final int systemTokens;
+        private int requests;
+        private long promptTokens;
+        private long completionTokens;
+        private double latencySeconds;
+
+        RequestEstimate(int systemTokens) {
+            this.systemTokens = systemTokens;
+        }
+
+        void request(int prompt, int completion) {
+            requests++;
+            promptTokens += systemTokens + prompt;
+            completionTokens += completion;
+            latencySeconds += PLAN_REQUEST_OVERHEAD_SECONDS + (double) completion / PLAN_OUTPUT_TOKENS_PER_SECOND;
+        }
+    }
+
+    /**
+     * Documentation tends to be about as long as the code it describes, within the completion limit.
+     */
+    private int expectedCompletionTokens(int contentTokens) {
+        return Math.min(appSettings.getMaxTokens(), Math.max(PLAN_MIN_COMPLETION_TOKENS, contentTokens));
+    }
+
+    /**
+     * Streams completions and passes every received token to {@code listener} together with the
+     * file it belongs to. Pass {@code null} to go back to whole-response requests.
+     */
+    public void setTokenListener(BiConsumer<String, String> listener) {
+        this.tokenListener = listener;
+    }
+
+    /**
+     * Takes request slots from a scheduler shared with other generators instead of allowing
+     * {@link Settings#getConcurrency()} requests of its own. Pass {@code null} to go back.
+     */
+    public void setRequestLane(RequestScheduler.Lane lane) {
+        this.requestLane = lane;
+    }
+
+    /**
+     * Directory of the {@link GenerationJournal}s recording each run's completed sections, or
+     * {@code null} to run without a journal.
+     */
+    public void setJournalDirectory(Path journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * Reuses the sections journaled by an earlier, unfinished run of the same commit instead of
+     * requesting them again. Without resume, a run starts a fresh journal.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Commit SHA the most recent run documented, or {@code null} before the first run.
+     */
+    public String getLastCommitSha() {
+        return lastCommitSha;
+    }
+
+    /**
+     * Metadata and per-file records of the most recent run, or {@code null} before the first run.
+     */
+    public DocumentationRun getLastRun() {
+        if (lastRunStarted == null) {
+            return null;
+        }
+        return new DocumentationRun(repoUrl, lastCommitSha, appSettings.getModel(), appSettings.getTemperature(),
+                appSettings.getMaxTokens(), lastRunStarted, new TreeMap<>(records));
+    }
+
+    private void startRun(String commitSha) {
+        lastCommitSha = commitSha;
+        lastRunStarted = Instant.now();
+        records.clear();
+    }
+
+    /**
+     * Splits a previously generated document back into file path to section text.
+     */
+    public static Map<String, String> parseSections(String documentation) {
+        Map<String, String> sections = new LinkedHashMap<>();
+        if (documentation == null || documentation.isEmpty()) {
+            return sections;
+        }
+
+        int start = documentation.startsWith(FILE_HEADING) ? 0 : documentation.indexOf("\n" + FILE_HEADING);
+        if (start < 0) {
+            return sections;
+        }
+        if (start > 0) {
+            start++;
+        }
+
+        while (start >= 0) {
+            int pathEnd = documentation.indexOf('\n', start);
+            if (pathEnd < 0) {
+                break;
+            }
+            String path = documentation.substring(start + FILE_HEADING.length(), pathEnd).trim();
+
+            int next = documentation.indexOf(SECTION_SEPARATOR + FILE_HEADING, pathEnd);
+            int bodyEnd = next >= 0 ? next : documentation.lastIndexOf(SECTION_SEPARATOR);
+            if (bodyEnd < pathEnd) {
+                bodyEnd = documentation.length();
+            }
+            sections.put(path, documentation.substring(pathEnd, bodyEnd).strip());
+            start = next >= 0 ? next + SECTION_SEPARATOR.length() : -1;
+        }
+        return sections;
+    }
+
+    /**
+     * Documents every file with at most {@link Settings#getConcurrency()} LLM requests in flight, or
+     * within the slots of the shared lane set with {@link #setRequestLane}.
+     * Each request runs on its own virtual thread and writes its sections to {@code document} as soon
+     * as it completes; the document orders sections by path, so the output does not depend on
+     * completion order. Files whose rendered prompt and model settings match a cached entry are
+     * served from the cache without an HTTP call, and small files are packed into shared requests
+     * (see {@link #packBatches}). A {@link DocumentationRecord} is kept for every section written.
+     * <p>
+     * Completed sections are also appended to the commit's {@link GenerationJournal}, which is
+     * removed once every file is documented; a run that fails leaves it behind for
+     * {@link #setResume resume}.
+     */
+    private void documentFiles(Map<String, String> files, Map<String, String> blobShas, DocumentAssembler document,
+                               Consumer<String> logger)
+            throws IOException, InterruptedException {
+        RequestScheduler.Lane lane = requestLane != null
+                ? requestLane
+                : new RequestScheduler(appSettings.getConcurrency()).lane(repoUrl, 1);
+        GenerationJournal journal = null;
+        if (journalDirectory != null) {
+            journal = GenerationJournal.open(journalDirectory, repoUrl, lastCommitSha, resume);
+            if (journal.size() > 0) {
+                logger.accept("Resuming: " + journal.size() + " files already documented by an earlier run");
+            }
         }
 
-        StringBuilder finalDoc = new StringBuilder();
-        finalDoc.append("# Documentation for Repository: ").append(repoUrl).append("\n\n");
+        try {
+            documentFiles(files, blobShas, new Progress(document, lane, journal, new AtomicInteger(), files.size(), logger));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            if (journal != null) {
+                journal.close();
+            }
+            throw e;
+        }
+        if (journal != null) {
+            journal.delete();
+        }
+    }
 
-        int fileCount = 1;
-        for (Map.Entry<String, String> entry : files.entrySet()) {
+    private void documentFiles(Map<String, String> files, Map<String, String> blobShas, Progress progress)
+            throws IOException, InterruptedException {
+        DocumentAssembler document = progress.document();
+        List<FileJob> pending = new ArrayList<>();
+        for (Map.Entry<String, String> entry : new TreeMap<>(files).entrySet()) {
             String fileName = entry.getKey();
             String fileContent = entry.getValue();
+            String prompt = openAIService.buildPrompt(fileName, fileContent, customPrompt);
+            FileJob job = new FileJob(fileName, fileContent, DocumentationCache.key(prompt, appSettings),
+                    DocumentationCache.sha256(fileContent), DocumentationCache.sha256(prompt), blobShas.get(fileName));
 
-            logger.accept("[" + fileCount + "/" + files.size() + "] Generating documentation for: " + fileName);
-            String doc = openAIService.generateDocumentationForFile(fileName, fileContent, customPrompt);
+            GenerationJournal.Entry journaled = progress.journal() != null ? progress.journal().get(fileName, job.key()) : null;
+            if (journaled != null) {
+                document.addSection(fileName, journaled.documentation());
+                records.put(fileName, journaled.record());
+                PipelineMetrics.filesDocumented("resumed").increment();
+                progress.log("Resumed", fileName);
+                continue;
+            }
 
-            finalDoc.append("## File: ").append(fileName).append("\n\n");
-            finalDoc.append(doc).append("\n\n---\n\n");
+            String cached = cache != null ? cache.get(job.key()) : null;
+            if (cached != null) {
+                document.addSection(fileName, cached);
+                records.put(fileName, job.record(appSettings.getModel(), -1, -1, -1, "cached"));
+                PipelineMetrics.filesDocumented("cached").increment();
+                progress.log("Cached", fileName);
+            } else {
+                pending.add(job);
+            }
+        }
 
-            Thread.sleep(15000);
+        List<List<FileJob>> batches = packBatches(pending, job -> OpenAIService.estimateTokens(job.content()));
+        List<Future<Void>> futures = new ArrayList<>(batches.size());
 
-            fileCount++;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<FileJob> batch : batches) {
+                futures.add(executor.submit(() -> {
+                    if (batch.size() == 1) {
+                        documentFile(batch.get(0), progress);
+                    } else {
+                        documentBatch(batch, progress);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                await(future, futures);
+            }
         }
+    }
 
-        //Path outputFile = Paths.get(outputPath, "DOCUMENTATION.md");
-        //Files.writeString(outputFile, finalDoc.toString());
-        //logger.accept("Documentation saved to " + outputFile.toAbsolutePath());
+    /**
+     * A file still to be documented, with the hashes identifying its prompt and content.
+     */
+    private record FileJob(String fileName, String content, String key, String contentHash, String promptHash,
+                           String blobSha) {
+        DocumentationRecord record(String model, int promptTokens, int completionTokens, long latencyMillis,
+                                   String source) {
+            return new DocumentationRecord(fileName, blobSha, contentHash, model, promptHash, promptTokens,
+                    completionTokens, latencyMillis, source);
+        }
+    }
+
+    /**
+     * State shared by the tasks of one {@link #documentFiles} call.
+     */
+    private record Progress(DocumentAssembler document, RequestScheduler.Lane permits, GenerationJournal journal,
+                            AtomicInteger completed, int total, Consumer<String> logger) {
+        void log(String outcome, String fileName) {
+            logger.accept("[" + completed.incrementAndGet() + "/" + total + "] " + outcome + ": " + fileName);
+        }
+    }
+
+    /**
+     * Writes a complete section to the document and records it in the cache and the journal.
+     */
+    private void complete(FileJob job, String documentation, DocumentationRecord record, Progress progress)
+            throws IOException {
+        if (cache != null) {
+            cache.put(job.key(), documentation);
+        }
+        progress.document().addSection(job.fileName(), documentation);
+        records.put(job.fileName(), record);
+        PipelineMetrics.filesDocumented(record.source()).increment();
+        if (progress.journal() != null) {
+            progress.journal().append(new GenerationJournal.Entry(job.fileName(), job.key(), documentation, record));
+        }
+    }
+
+    private void documentFile(FileJob job, Progress progress) throws IOException, InterruptedException {
+        String fileName = job.fileName();
+        long start = System.nanoTime();
+        Completion completion;
+        try {
+            completion = request(fileName, job.content(), progress.permits(), progress.logger());
+        } catch (PartialResponseException e) {
+            if (e.getPartialContent().isEmpty()) {
+                throw e;
+            }
+            // Keep what arrived, but never cache an incomplete section
+            progress.logger().accept("Stream interrupted, keeping partial documentation for: " + fileName);
+            progress.document().addSection(fileName, e.getPartialContent()
+                    + "\n\n_(Documentation incomplete: the response stream was interrupted.)_");
+            records.put(fileName, job.record(appSettings.getModel(), -1, -1,
+                    (System.nanoTime() - start) / 1_000_000, "partial"));
+            PipelineMetrics.filesDocumented("partial").increment();
+            progress.log("Partially documented", fileName);
+            return;
+        }
+        complete(job, completion.content(), job.record(appSettings.getModel(), completion.promptTokens(),
+                completion.completionTokens(), completion.latency().toMillis(), "generated"), progress);
+        progress.log("Documented", fileName);
+    }
+
+    /**
+     * Documents several small files with one request and splits the answer back into sections.
+     * Files missing from the answer, or cut off by the token limit, fall back to requests of
+     * their own, as does the whole batch when its request fails. The batch's token usage is
+     * attributed to its files in proportion to their content and documentation length.
+     */
+    private void documentBatch(List<FileJob> batch, Progress progress) throws IOException, InterruptedException {
+        Map<String, String> contents = new LinkedHashMap<>();
+        for (FileJob job : batch) {
+            contents.put(job.fileName(), job.content());
+        }
+
+        Completion completion;
+        try {
+            completion = withPermit(progress.permits(), () -> {
+                progress.logger().accept("Generating documentation for " + batch.size() + " files in one request: "
+                        + String.join(", ", contents.keySet()));
+                return openAIService.requestCompletion(openAIService.buildBatchPrompt(contents, customPrompt), null);
+            });
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            progress.logger().accept("Batch request failed, documenting files one by one: " + e.getMessage());
+            for (FileJob job : batch) {
+                documentFile(job, progress);
+            }
+            return;
+        }
+
+        Map<String, String> docs = OpenAIService.splitBatchResponse(completion.content(), contents.keySet());
+        if (completion.truncated() && !docs.isEmpty()) {
+            // The last section stopped at max_tokens mid-way
+            docs.remove(new ArrayList<>(docs.keySet()).get(docs.size() - 1));
+        }
+
+        long contentLength = 0;
+        long docLength = 0;
+        for (FileJob job : batch) {
+            if (docs.containsKey(job.fileName())) {
+                contentLength += job.content().length();
+                docLength += docs.get(job.fileName()).length();
+            }
+        }
+
+        List<FileJob> missing = new ArrayList<>();
+        for (FileJob job : batch) {
+            String doc = docs.get(job.fileName());
+            if (doc == null) {
+                missing.add(job);
+                continue;
+            }
+            complete(job, doc, job.record(appSettings.getModel(),
+                    share(completion.promptTokens(), job.content().length(), contentLength),
+                    share(completion.completionTokens(), doc.length(), docLength),
+                    completion.latency().toMillis(), "batched"), progress);
+            progress.log("Documented", job.fileName());
+        }
+
+        for (FileJob job : missing) {
+            progress.logger().accept("No documentation for " + job.fileName() + " in batch response, requesting it separately");
+            documentFile(job, progress);
+        }
+    }
+
+    private static int share(int tokens, long part, long whole) {
+        return tokens < 0 || whole == 0 ? -1 : (int) (tokens * part / whole);
+    }
+
+    /**
+     * Packs consecutive small files into batches whose combined source fits both the prompt budget
+     * and, since their documentation shares one response, the completion limit. Larger files and
+     * files left alone end up in batches of one, as does every file when the context has no room
+     * for a batch. Batches are never empty.
+     */
+    private <T> List<List<T>> packBatches(List<T> jobs, ToIntFunction<T> tokenCount) {
+        int smallFileTokens = appSettings.getMaxTokens() / MAX_BATCH_FILES;
+        int budget = Math.min(appSettings.getMaxTokens(),
+                promptBudget(openAIService.buildBatchPrompt(Map.of(), customPrompt)));
+
+        List<List<T>> batches = new ArrayList<>();
+        if (budget <= 0) {
+            for (T job : jobs) {
+                batches.add(List.of(job));
+            }
+            return batches;
+        }
+        List<T> batch = new ArrayList<>();
+        int tokens = 0;
+        for (T job : jobs) {
+            int jobTokens = tokenCount.applyAsInt(job);
+            if (jobTokens > smallFileTokens) {
+                batches.add(List.of(job));
+                continue;
+            }
+            if (!batch.isEmpty() && (batch.size() == MAX_BATCH_FILES || tokens + jobTokens > budget)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                tokens = 0;
+            }
+            batch.add(job);
+            tokens += jobTokens;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Documents one file, holding a permit for each LLM request. Files that do not fit the model's
+     * context are split with {@link SourceChunker}, their parts documented in parallel and the
+     * results merged; only the final merge is streamed to the token listener.
+     */
+    private Completion request(String fileName, String fileContent, RequestScheduler.Lane permits, Consumer<String> logger)
+            throws IOException, InterruptedException {
+        BiConsumer<String, String> listener = tokenListener;
+        Consumer<String> onToken = listener == null ? null : token -> listener.accept(fileName, token);
+
+        int budget = promptBudget(openAIService.buildChunkPrompt(fileName, "", 1, 1, customPrompt));
+        List<String> chunks = budget > 0
+                ? SourceChunker.split(fileName, fileContent, budget)
+                : List.of(fileContent);
+        if (chunks.size() == 1) {
+            return withPermit(permits, () -> {
+                logger.accept("Generating documentation for: " + fileName);
+                return openAIService.requestDocumentation(fileName, fileContent, customPrompt, onToken);
+            });
+        }
+
+        logger.accept("Generating documentation for: " + fileName + " in " + chunks.size() + " parts");
+        long start = System.nanoTime();
+        List<Completion> parts = new ArrayList<>();
+        List<Future<Completion>> futures = new ArrayList<>(chunks.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < chunks.size(); i++) {
+                String prompt = openAIService.buildChunkPrompt(fileName, chunks.get(i), i + 1, chunks.size(), customPrompt);
+                futures.add(executor.submit(() -> withPermit(permits, () -> openAIService.requestCompletion(prompt, null))));
+            }
+            for (Future<Completion> future : futures) {
+                parts.add(await(future, futures));
+            }
+        }
+
+        // Merge in rounds until one document is left; each merge prompt has to fit the context too
+        List<Completion> all = new ArrayList<>(parts);
+        while (parts.size() > 1) {
+            List<List<String>> groups = mergeGroups(fileName, parts.stream().map(Completion::content).toList(),
+                    OpenAIService::estimateTokens);
+            boolean last = groups.size() == 1;
+            logger.accept("Merging " + parts.size() + " parts of " + fileName);
+
+            List<Future<Completion>> merges = new ArrayList<>(groups.size());
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (List<String> group : groups) {
+                    String prompt = openAIService.buildMergePrompt(fileName, group, customPrompt);
+                    merges.add(executor.submit(() -> withPermit(permits,
+                            () -> openAIService.requestCompletion(prompt, last ? onToken : null))));
+                }
+                parts = new ArrayList<>(merges.size());
+                for (Future<Completion> future : merges) {
+                    parts.add(await(future, merges));
+                }
+            }
+            all.addAll(parts);
+        }
 
-        return finalDoc.toString();
+        return new Completion(parts.get(0).content(), sum(all, Completion::promptTokens),
+                sum(all, Completion::completionTokens), Duration.ofNanos(System.nanoTime() - start),
+                parts.get(0).finishReason());
+    }
+
+    /**
+     * Tokens left for file content in a request whose prompt without the content is
+     * {@code emptyPrompt}. Token estimates are rough, so a quarter of the room is kept in reserve.
+     */
+    private int promptBudget(String emptyPrompt) {
+        int room = appSettings.getContextWindow() - appSettings.getMaxTokens()
+                - OpenAIService.estimateTokens(OpenAIService.SYSTEM_MESSAGE) - OpenAIService.estimateTokens(emptyPrompt);
+        return room * 3 / 4;
+    }
+
+    /**
+     * Groups consecutive partial documents so that each group's merge prompt fits the budget.
+     * Always pairs at least two parts, so every round makes progress.
+     */
+    private <T> List<List<T>> mergeGroups(String fileName, List<T> parts, ToIntFunction<T> tokenCount) {
+        int budget = promptBudget(openAIService.buildMergePrompt(fileName, List.of(), customPrompt));
+        List<List<T>> groups = new ArrayList<>();
+        List<T> group = new ArrayList<>();
+        int tokens = 0;
+        for (T part : parts) {
+            int partTokens = tokenCount.applyAsInt(part);
+            if (group.size() >= 2 && tokens + partTokens > budget) {
+                groups.add(group);
+                group = new ArrayList<>();
+                tokens = 0;
+            }
+            group.add(part);
+            tokens += partTokens;
+        }
+        if (group.size() == 1 && !groups.isEmpty()) {
+            groups.get(groups.size() - 1).add(group.get(0));
+        } else {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Sum of a token count over completions, or {@code -1} if any of them is unknown.
+     */
+    private static int sum(List<Completion> completions, ToIntFunction<Completion> tokens) {
+        int total = 0;
+        for (Completion completion : completions) {
+            int value = tokens.applyAsInt(completion);
+            if (value < 0) {
+                return -1;
+            }
+            total += value;
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface LlmRequest {
+        Completion send() throws IOException, InterruptedException;
+    }
+
+    private static Completion withPermit(RequestScheduler.Lane permits, LlmRequest request) throws IOException, InterruptedException {
+        long queued = System.nanoTime();
+        permits.acquire();
+        PipelineMetrics.LLM_QUEUE_WAIT.recordSince(queued);
+        try {
+            return request.send();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Waits for one task, cancelling the remaining work on the first failure.
+     */
+    private static <T> T await(Future<T> future, List<? extends Future<?>> all)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            all.forEach(f -> f.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof InterruptedException ie) {
+                throw ie;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Documentation generation failed", cause);
+        } catch (InterruptedException e) {
+            all.forEach(f -> f.cancel(true));
+            throw e;
+        }
     }
 }
@@ -0,0 +1,44 @@
+package org.example.backend;
+
+import java.time.Duration;
+
+/**
+ * Estimated cost of documenting a repository, produced by
+ * {@link DocumentationGenerator#plan(java.util.function.Consumer)} without calling the LLM.
+ *
+ * @param bottleneck what bounds the projected duration: {@code "concurrency"},
+ *                   {@code "requests per minute"} or {@code "tokens per minute"}
+ */
+public record DocumentationPlan(String repository, String commitSha, int files, int chunkedFiles, int batchedFiles,
+                                int requests, long promptTokens, long completionTokens, int concurrency,
+                                double requestsPerMinute, double tokensPerMinute, Duration projectedDuration,
+                                String bottleneck) {
+
+    public long totalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    /**
+     * Multi-line report for logs and dialogs.
+     */
+    public String summary() {
+        return "Repository: " + repository + " @ " + commitSha + "\n"
+                + "Files: " + files + " (" + chunkedFiles + " split into parts, " + batchedFiles + " packed into shared requests)\n"
+                + "LLM requests: " + requests + "\n"
+                + "Tokens: ~" + promptTokens + " prompt + ~" + completionTokens + " completion = ~" + totalTokens() + "\n"
+                + "Limits: " + concurrency + " concurrent, " + Math.round(requestsPerMinute) + " requests/min, "
+                + Math.round(tokensPerMinute) + " tokens/min\n"
+                + "Projected duration: " + formatDuration(projectedDuration) + " (bound by " + bottleneck + ")";
+    }
+
+    private static String formatDuration(Duration duration) {
+        long seconds = duration.toSeconds();
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + "m " + seconds % 60 + "s";
+        }
+        return seconds / 3600 + "h " + seconds / 60 % 60 + "m";
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.backend;
+
+/**
+ * Provenance of one file's documentation section: what was documented, with which model and
+ * prompt, and what the request cost. Token counts and latency are {@code -1} when unknown, e.g. for
+ * sections served from the cache.
+ *
+ * @param source {@code "generated"}, {@code "batched"} (documented together with other small files,
+ *               with the request's usage shared out among them), {@code "cached"} or {@code "partial"}
+ */
+public record DocumentationRecord(String path, String blobSha, String contentHash, String model, String promptHash,
+                                  int promptTokens, int completionTokens, long latencyMillis, String source) {
+}
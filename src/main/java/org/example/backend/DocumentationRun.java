@@ -0,0 +1,12 @@
+package org.example.backend;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Metadata of one generation run, with a {@link DocumentationRecord} per file documented in it
+ * keyed by path. Incremental runs only have records for the files they regenerated.
+ */
+public record DocumentationRun(String repository, String commitSha, String model, double temperature,
+                               int maxTokens, Instant generatedAt, Map<String, DocumentationRecord> files) {
+}
@@ -1,152 +1,1132 @@
 package org.example.backend;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.poi.xwpf.usermodel.Borders;
+import org.apache.poi.xwpf.usermodel.UnderlinePatterns;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
 
+import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public abstract class ExportOptions implements Exporter{
 
     public static class MdExporter implements Exporter {
+        @Override
+        public String outputPath(String path) {
+            return withExtension(path, ".md");
+        }
+
         @Override
         public void export(String path, String content) throws IOException {
-            if (!path.endsWith(".md")) {
-                path += ".md";
-            }
+            path = outputPath(path);
             Files.writeString(Paths.get(path), content);
         }
+
+        @Override
+        public void export(String path, Reader content) throws IOException {
+            path = outputPath(path);
+            copy(content, path);
+        }
     }
 
     public static class TxtExporter implements Exporter {
+        @Override
+        public String outputPath(String path) {
+            return withExtension(path, ".txt");
+        }
+
         @Override
         public void export(String path, String content) throws IOException {
-            if (!path.endsWith(".txt")) {
-                path += ".txt";
-            }
+            path = outputPath(path);
             Files.writeString(Paths.get(path), content);
         }
+
+        @Override
+        public void export(String path, Reader content) throws IOException {
+            path = outputPath(path);
+            copy(content, path);
+        }
+    }
+
+    private static String withExtension(String path, String extension) {
+        return path.endsWith(extension) ? path : path + extension;
+    }
+
+    /**
+     * Copies a document to a UTF-8 file through a fixed-size buffer.
+     */
+    private static void copy(Reader content, String path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            content.transferTo(writer);
+        }
     }
 
     public static class PdfExporter implements Exporter {
+        private static final float FONT_SIZE = 10;
+        private static final float LEADING = 14.5f;
+        private static final float MARGIN_X = 25;
+        private static final float TOP_Y = 700;
+        private static final float BOTTOM_Y = 50;
+        private static final float INDENT = 18;
+        private static final int MAX_TABLE_COLUMN = 40;
+        // Content streams beyond this spill to a scratch file instead of the heap
+        private static final long MAX_MAIN_MEMORY_BYTES = 16L * 1024 * 1024;
+
+        @Override
+        public String outputPath(String path) {
+            return withExtension(path, ".pdf");
+        }
+
         @Override
         public void export(String path, String content) throws IOException {
-            if (!path.endsWith(".pdf")) {
-                path += ".pdf";
-            }
-            String asciiOnly = content.replaceAll("[^\\x20-\\x7E\\n]", "").replace("\t", "   ");
-
-            try (PDDocument document = new PDDocument()) {
-                PDPage page = new PDPage(PDRectangle.LETTER);
-                document.addPage(page);
-                PDPageContentStream contentStream = new PDPageContentStream(document, page);
-                contentStream.beginText();
-                contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 10);
-                contentStream.setLeading(14.5f);
-                contentStream.newLineAtOffset(25, 700);
-
-                String[] lines = asciiOnly.split("\n");
-                float yPosition = 700;
-                for (String line : lines) {
-                    if (yPosition <= 50) {  // Check if the current position is near the bottom of the page
-                        contentStream.endText();
-                        contentStream.close();
-                        page = new PDPage(PDRectangle.LETTER);
-                        document.addPage(page);
-                        contentStream = new PDPageContentStream(document, page);
-                        contentStream.beginText();
-                        contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 10);
-                        contentStream.setLeading(14.5f);
-                        contentStream.newLineAtOffset(25, 700);
-                        yPosition = 700;
-                    }
-                    contentStream.showText(line);
-                    contentStream.newLine();
-                    yPosition -= 14.5f;  // Adjust yPosition based on leading
-                }
-
-                contentStream.endText();
-                contentStream.close();
+            export(path, new StringReader(content));
+        }
+
+        @Override
+        public void export(String path, Reader content) throws IOException {
+            path = outputPath(path);
+
+            try (PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY_BYTES).streamCache)) {
+                PageWriter writer = new PageWriter(document);
+                MarkdownParser.parse(content, new PdfRenderer(writer));
+                writer.close();
+                if (document.getNumberOfPages() == 0) {
+                    document.addPage(new PDPage(PDRectangle.LETTER));
+                }
 
                 document.save(path);
             }
         }
+
+        /**
+         * Maps Markdown blocks to fonts, indentation and spacing.
+         */
+        private static class PdfRenderer implements MarkdownHandler {
+            private final PageWriter writer;
+            private boolean inList;
+
+            PdfRenderer(PageWriter writer) {
+                this.writer = writer;
+            }
+
+            @Override
+            public void heading(int level, String text) throws IOException {
+                endList();
+                writer.gap();
+                writer.write(MarkdownInline.plain(text), writer.bold, 0);
+                writer.gap();
+            }
+
+            @Override
+            public void paragraph(String text) throws IOException {
+                endList();
+                writer.write(MarkdownInline.plain(text), writer.regular, 0);
+                writer.gap();
+            }
+
+            @Override
+            public void codeBlock(String language, List<String> lines) throws IOException {
+                endList();
+                for (String line : lines) {
+                    writer.write(line, writer.mono, INDENT);
+                }
+                writer.gap();
+            }
+
+            @Override
+            public void listItem(int number, int depth, String text) throws IOException {
+                inList = true;
+                String marker = number > 0 ? number + ". " : "- ";
+                writer.write(marker + MarkdownInline.plain(text), writer.regular, INDENT * (depth + 1));
+            }
+
+            @Override
+            public void table(List<String> header, List<List<String>> rows) throws IOException {
+                endList();
+                int columns = header.size();
+                for (List<String> row : rows) {
+                    columns = Math.max(columns, row.size());
+                }
+                int[] widths = new int[columns];
+                measure(widths, header);
+                rows.forEach(row -> measure(widths, row));
+
+                writer.write(tableRow(widths, header), writer.monoBold, 0);
+                for (List<String> row : rows) {
+                    writer.write(tableRow(widths, row), writer.mono, 0);
+                }
+                writer.gap();
+            }
+
+            @Override
+            public void rule() throws IOException {
+                endList();
+                writer.gap();
+            }
+
+            private void endList() throws IOException {
+                if (inList) {
+                    writer.gap();
+                    inList = false;
+                }
+            }
+
+            private static void measure(int[] widths, List<String> cells) {
+                for (int i = 0; i < cells.size(); i++) {
+                    widths[i] = Math.min(MAX_TABLE_COLUMN, Math.max(widths[i], MarkdownInline.plain(cells.get(i)).length()));
+                }
+            }
+
+            private static String tableRow(int[] widths, List<String> cells) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < widths.length; i++) {
+                    String cell = i < cells.size() ? MarkdownInline.plain(cells.get(i)) : "";
+                    if (i > 0) {
+                        sb.append(" | ");
+                    }
+                    sb.append(cell);
+                    sb.append(" ".repeat(Math.max(0, widths[i] - cell.length())));
+                }
+                return sb.toString().stripTrailing();
+            }
+        }
+
+        /**
+         * Embedded TrueType font for the characters the standard 14 fonts cannot encode, loaded on
+         * first use so ASCII-only documents embed nothing: the first of UNICODE_FONTS installed,
+         * else the Liberation Sans bundled with PDFBox. Only the glyphs used end up in the file.
+         */
+        private static class UnicodeFallback {
+            private static final List<String> UNICODE_FONTS = List.of(
+                    "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+                    "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+                    "/usr/share/fonts/TTF/DejaVuSans.ttf",
+                    "/usr/share/fonts/truetype/noto/NotoSans-Regular.ttf",
+                    "/System/Library/Fonts/Supplemental/Arial Unicode.ttf",
+                    "C:\\Windows\\Fonts\\arial.ttf");
+            private static final String BUNDLED_FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+            private final PDDocument document;
+            private PDFont font;
+
+            UnicodeFallback(PDDocument document) {
+                this.document = document;
+            }
+
+            PDFont font() throws IOException {
+                if (font == null) {
+                    font = load();
+                }
+                return font;
+            }
+
+            private PDFont load() throws IOException {
+                for (String candidate : UNICODE_FONTS) {
+                    File file = new File(candidate);
+                    if (file.isFile()) {
+                        try {
+                            return PDType0Font.load(document, file);
+                        } catch (IOException e) {
+                            // Not a usable TrueType font; try the next one
+                        }
+                    }
+                }
+                try (InputStream in = PDDocument.class.getResourceAsStream(BUNDLED_FONT)) {
+                    if (in == null) {
+                        throw new IOException("No Unicode font available for PDF export");
+                    }
+                    return PDType0Font.load(document, in);
+                }
+            }
+        }
+
+        /**
+         * A standard 14 font with the Unicode fallback for the characters it cannot encode, and the
+         * advance of each character at FONT_SIZE. Printable ASCII is looked up in a table.
+         */
+        private static class FontMetrics {
+            private record Glyph(PDFont font, float width) {
+            }
+
+            private final PDType1Font font;
+            private final UnicodeFallback fallback;
+            private final float[] asciiWidths = new float[0x7F];
+            // null values mark characters neither font can draw
+            private final Map<Integer, Glyph> glyphs = new HashMap<>();
+
+            FontMetrics(Standard14Fonts.FontName name, UnicodeFallback fallback) throws IOException {
+                this.font = new PDType1Font(name);
+                this.fallback = fallback;
+                for (char c = 0x20; c < 0x7F; c++) {
+                    asciiWidths[c] = font.getStringWidth(String.valueOf(c)) / 1000 * FONT_SIZE;
+                }
+            }
+
+            boolean canDraw(int codePoint) throws IOException {
+                return codePoint < 0x7F || glyph(codePoint) != null;
+            }
+
+            /**
+             * Advance of a character that {@link #canDraw} accepted.
+             */
+            float width(int codePoint) throws IOException {
+                return codePoint < 0x7F ? asciiWidths[codePoint] : glyph(codePoint).width();
+            }
+
+            PDFont fontFor(int codePoint) throws IOException {
+                return codePoint < 0x7F ? font : glyph(codePoint).font();
+            }
+
+            private Glyph glyph(int codePoint) throws IOException {
+                if (glyphs.containsKey(codePoint)) {
+                    return glyphs.get(codePoint);
+                }
+                String text = Character.toString(codePoint);
+                Glyph glyph = null;
+                if (canEncode(font, text)) {
+                    glyph = new Glyph(font, font.getStringWidth(text) / 1000 * FONT_SIZE);
+                } else if (canEncode(fallback.font(), text)) {
+                    glyph = new Glyph(fallback.font(), fallback.font().getStringWidth(text) / 1000 * FONT_SIZE);
+                }
+                glyphs.put(codePoint, glyph);
+                return glyph;
+            }
+
+            private static boolean canEncode(PDFont font, String text) throws IOException {
+                try {
+                    font.encode(text);
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Lays out lines top to bottom, word-wrapping at the right margin and starting a new page
+         * near the bottom. Each font is created once and shared by every page.
+         */
+        private static class PageWriter {
+            private final PDDocument document;
+            private final FontMetrics regular;
+            private final FontMetrics bold;
+            private final FontMetrics mono;
+            private final FontMetrics monoBold;
+            private final float pageWidth = PDRectangle.LETTER.getWidth() - 2 * MARGIN_X;
+            private PDPageContentStream contentStream;
+            private PDFont currentFont;
+            private float yPosition;
+
+            PageWriter(PDDocument document) throws IOException {
+                this.document = document;
+                UnicodeFallback fallback = new UnicodeFallback(document);
+                this.regular = new FontMetrics(Standard14Fonts.FontName.HELVETICA, fallback);
+                this.bold = new FontMetrics(Standard14Fonts.FontName.HELVETICA_BOLD, fallback);
+                this.mono = new FontMetrics(Standard14Fonts.FontName.COURIER, fallback);
+                this.monoBold = new FontMetrics(Standard14Fonts.FontName.COURIER_BOLD, fallback);
+            }
+
+            /**
+             * Writes one logical line, wrapped to the width left after {@code indent}.
+             */
+            void write(String rawLine, FontMetrics font, float indent) throws IOException {
+                String line = sanitize(rawLine, font);
+                if (line.isEmpty()) {
+                    nextLine("", font, indent);
+                    return;
+                }
+
+                int start = 0;
+                while (start < line.length()) {
+                    int end = fitEnd(line, start, font, pageWidth - indent);
+                    nextLine(line.substring(start, end), font, indent);
+                    start = end;
+                    while (start < line.length() && line.charAt(start) == ' ') {
+                        start++;
+                    }
+                }
+            }
+
+            /**
+             * Leaves an empty line, unless at the top of a page.
+             */
+            void gap() throws IOException {
+                if (contentStream != null && yPosition < TOP_Y && yPosition > BOTTOM_Y) {
+                    yPosition -= LEADING;
+                }
+            }
+
+            void close() throws IOException {
+                if (contentStream != null) {
+                    contentStream.endText();
+                    contentStream.close();
+                    contentStream = null;
+                }
+            }
+
+            /**
+             * End index of the longest prefix of {@code line} from {@code start} that fits
+             * {@code maxWidth}, preferring to break at a space.
+             */
+            private static int fitEnd(String line, int start, FontMetrics font, float maxWidth) throws IOException {
+                float width = 0;
+                int lastSpace = -1;
+                for (int i = start; i < line.length(); i += Character.charCount(line.codePointAt(i))) {
+                    int c = line.codePointAt(i);
+                    width += font.width(c);
+                    if (width > maxWidth) {
+                        if (lastSpace > start) {
+                            return lastSpace;
+                        }
+                        return Math.max(i, start + Character.charCount(line.codePointAt(start)));
+                    }
+                    if (c == ' ') {
+                        lastSpace = i;
+                    }
+                }
+                return line.length();
+            }
+
+            private void nextLine(String text, FontMetrics font, float indent) throws IOException {
+                if (contentStream == null || yPosition <= BOTTOM_Y) {  // Check if the current position is near the bottom of the page
+                    close();
+                    PDPage page = new PDPage(PDRectangle.LETTER);
+                    document.addPage(page);
+                    contentStream = new PDPageContentStream(document, page);
+                    contentStream.beginText();
+                    currentFont = null;
+                    yPosition = TOP_Y;
+                }
+                if (!text.isEmpty()) {
+                    contentStream.setTextMatrix(Matrix.getTranslateInstance(MARGIN_X + indent, yPosition));
+                    // Each run of characters drawn by the same font is shown in one operation
+                    int runStart = 0;
+                    PDFont runFont = font.fontFor(text.codePointAt(0));
+                    for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+                        PDFont glyphFont = font.fontFor(text.codePointAt(i));
+                        if (glyphFont != runFont) {
+                            show(text.substring(runStart, i), runFont);
+                            runStart = i;
+                            runFont = glyphFont;
+                        }
+                    }
+                    show(text.substring(runStart), runFont);
+                }
+                yPosition -= LEADING;  // Adjust yPosition based on leading
+            }
+
+            private void show(String text, PDFont font) throws IOException {
+                if (font != currentFont) {
+                    contentStream.setFont(font, FONT_SIZE);
+                    currentFont = font;
+                }
+                contentStream.showText(text);
+            }
+
+            /**
+             * Expands tabs, drops control and formatting characters, and replaces characters that
+             * neither {@code font} nor the Unicode fallback can draw with '?'.
+             */
+            private static String sanitize(String line, FontMetrics font) throws IOException {
+                StringBuilder sb = new StringBuilder(line.length());
+                for (int i = 0; i < line.length(); i += Character.charCount(line.codePointAt(i))) {
+                    int c = line.codePointAt(i);
+                    if (c == '\t') {
+                        sb.append("   ");
+                    } else if (Character.isISOControl(c) || Character.getType(c) == Character.FORMAT) {
+                        continue;
+                    } else if (font.canDraw(c)) {
+                        sb.appendCodePoint(c);
+                    } else {
+                        sb.append('?');
+                    }
+                }
+                return sb.toString();
+            }
+        }
     }
 
     public static class DocExporter implements Exporter {
+        private static final String CODE_FONT = "Courier New";
+
+        @Override
+        public String outputPath(String path) {
+            return withExtension(path, ".docx");
+        }
+
         @Override
         public void export(String path, String content) throws IOException {
-            if (!path.endsWith(".docx")) {
-                path += ".docx";
-            }
+            export(path, new StringReader(content));
+        }
+
+        @Override
+        public void export(String path, Reader content) throws IOException {
+            path = outputPath(path);
 
             try (XWPFDocument doc = new XWPFDocument()) {
-                String[] lines = content.split("\n");
-                for (String line : lines) {
-                    XWPFParagraph p = doc.createParagraph();
-                    p.createRun().setText(line);
-                }
+                MarkdownParser.parse(content, new DocxRenderer(doc));
 
                 try (FileOutputStream out = new FileOutputStream(path)) {
                     doc.write(out);
                 }
             }
         }
+
+        private static class DocxRenderer implements MarkdownHandler {
+            private final XWPFDocument doc;
+
+            DocxRenderer(XWPFDocument doc) {
+                this.doc = doc;
+            }
+
+            @Override
+            public void heading(int level, String text) {
+                XWPFParagraph p = doc.createParagraph();
+                p.setSpacingBefore(240);
+                XWPFRun run = p.createRun();
+                run.setBold(true);
+                run.setFontSize(Math.max(11, 20 - 2 * level));
+                run.setText(MarkdownInline.plain(text));
+            }
+
+            @Override
+            public void paragraph(String text) {
+                addSpans(doc.createParagraph(), text);
+            }
+
+            @Override
+            public void codeBlock(String language, List<String> lines) {
+                XWPFParagraph p = doc.createParagraph();
+                p.setIndentationLeft(360);
+                XWPFRun run = p.createRun();
+                run.setFontFamily(CODE_FONT);
+                run.setFontSize(9);
+                for (int i = 0; i < lines.size(); i++) {
+                    if (i > 0) {
+                        run.addBreak();
+                    }
+                    run.setText(lines.get(i));
+                }
+            }
+
+            @Override
+            public void listItem(int number, int depth, String text) {
+                XWPFParagraph p = doc.createParagraph();
+                p.setIndentationLeft(360 * (depth + 1));
+                p.setIndentationHanging(360);
+                p.setSpacingAfter(0);
+                p.createRun().setText(number > 0 ? number + ".\t" : "•\t");
+                addSpans(p, text);
+            }
+
+            @Override
+            public void table(List<String> header, List<List<String>> rows) {
+                int columns = header.size();
+                for (List<String> row : rows) {
+                    columns = Math.max(columns, row.size());
+                }
+
+                XWPFTable table = doc.createTable(rows.size() + 1, columns);
+                fillRow(table.getRow(0), header, true);
+                for (int i = 0; i < rows.size(); i++) {
+                    fillRow(table.getRow(i + 1), rows.get(i), false);
+                }
+                doc.createParagraph();
+            }
+
+            @Override
+            public void rule() {
+                doc.createParagraph().setBorderBottom(Borders.SINGLE);
+            }
+
+            private void fillRow(XWPFTableRow row, List<String> cells, boolean header) {
+                for (int i = 0; i < cells.size(); i++) {
+                    XWPFParagraph p = row.getCell(i).getParagraphs().get(0);
+                    if (header) {
+                        XWPFRun run = p.createRun();
+                        run.setBold(true);
+                        run.setText(MarkdownInline.plain(cells.get(i)));
+                    } else {
+                        addSpans(p, cells.get(i));
+                    }
+                }
+            }
+
+            private static void addSpans(XWPFParagraph p, String text) {
+                for (MarkdownInline.Span span : MarkdownInline.spans(text)) {
+                    boolean link = span.link() != null && MarkdownInline.isSafeLink(span.link());
+                    XWPFRun run = link ? p.createHyperlinkRun(span.link()) : p.createRun();
+                    run.setText(span.text());
+                    run.setBold(span.bold());
+                    run.setItalic(span.italic());
+                    if (span.code()) {
+                        run.setFontFamily(CODE_FONT);
+                    }
+                    if (link) {
+                        run.setUnderline(UnderlinePatterns.SINGLE);
+                        run.setColor("0563C1");
+                    }
+                }
+            }
+        }
     }
 
     public static class HtmlExporter implements Exporter {
+        private static final String FILE_SECTION_PREFIX = "File: ";
+        private static final int MAX_SLUG_LENGTH = 60;
+
+        private final boolean pagePerFile;
+
+        public HtmlExporter() {
+            this(false);
+        }
+
+        /**
+         * @param pagePerFile write a directory with an index page and one page per source file
+         *                    instead of a single HTML file
+         */
+        public HtmlExporter(boolean pagePerFile) {
+            this.pagePerFile = pagePerFile;
+        }
+
+        @Override
+        public String outputPath(String path) {
+            if (pagePerFile) {
+                return (path.endsWith(".html") ? path.substring(0, path.length() - 5) : path) + "-html";
+            }
+            return withExtension(path, ".html");
+        }
+
         @Override
         public void export(String path, String content) throws IOException {
-            if (!path.endsWith(".html")) {
-                path += ".html";
+            export(path, new StringReader(content));
+        }
+
+        @Override
+        public void export(String path, Reader content) throws IOException {
+            if (pagePerFile) {
+                exportPages(outputPath(path), content);
+                return;
             }
+            path = outputPath(path);
 
-            // Wrap content in basic HTML tags and escape special characters for safety
-            String htmlContent = "<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n"
-                    + "<title>Documentation Export</title>\n"
-                    + "<style> pre { font-family: Consolas, monospace; white-space: pre-wrap; } </style>\n"
-                    + "</head>\n<body>\n<pre>"
-                    + escapeHtml(content)
-                    + "</pre>\n</body>\n</html>";
+            // The body is rendered to a scratch file while the table of contents is collected,
+            // then copied behind the contents; only the TOC entries are held in memory.
+            List<String[]> toc = new ArrayList<>();
+            Path body = Files.createTempFile("docgen-", ".html");
+            try {
+                try (Writer writer = Files.newBufferedWriter(body, StandardCharsets.UTF_8)) {
+                    HtmlRenderer renderer = new HtmlRenderer(writer);
+                    renderer.sectionListener = (title, id) -> toc.add(new String[]{title, "#" + id});
+                    MarkdownParser.parse(content, renderer);
+                    renderer.closeLists(-1);
+                }
 
-            Files.writeString(Paths.get(path), htmlContent);
+                try (Writer writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+                     Reader reader = Files.newBufferedReader(body, StandardCharsets.UTF_8)) {
+                    writeHead(writer, "Documentation Export");
+                    writeToc(writer, toc);
+                    writer.write("<main>\n");
+                    reader.transferTo(writer);
+                    writer.write("</main>\n</body>\n</html>");
+                }
+            } finally {
+                Files.deleteIfExists(body);
+            }
         }
 
-        private static String escapeHtml(String s) {
-            return s.replace("&", "&amp;")
-                    .replace("<", "&lt;")
-                    .replace(">", "&gt;")
-                    .replace("\"", "&quot;")
-                    .replace("'", "&#39;");
+        /**
+         * Writes {@code directory/index.html} with the text before the first file section and
+         * links to one page per file section, so no single page grows with the repository.
+         */
+        private void exportPages(String directory, Reader content) throws IOException {
+            Path dir = Files.createDirectories(Paths.get(directory));
+            List<String[]> toc = new ArrayList<>();
+            Path preface = Files.createTempFile("docgen-", ".html");
+
+            try {
+                Writer prefaceWriter = Files.newBufferedWriter(preface, StandardCharsets.UTF_8);
+                HtmlRenderer renderer = new HtmlRenderer(prefaceWriter);
+                renderer.sectionListener = (title, id) -> {
+                    String page = String.format("%04d-%s.html", toc.size() + 1,
+                            id.length() > MAX_SLUG_LENGTH ? id.substring(0, MAX_SLUG_LENGTH) : id);
+                    if (renderer.out != prefaceWriter) {
+                        closePage(renderer.out, page);
+                    }
+                    toc.add(new String[]{title, page});
+
+                    Writer pageWriter = Files.newBufferedWriter(dir.resolve(page), StandardCharsets.UTF_8);
+                    writeHead(pageWriter, title);
+                    pageWriter.write("<nav><a href=\"index.html\">Index</a>");
+                    if (toc.size() > 1) {
+                        pageWriter.write(" | <a href=\"" + toc.get(toc.size() - 2)[1] + "\">Previous</a>");
+                    }
+                    pageWriter.write("</nav>\n<main>\n");
+                    renderer.out = pageWriter;
+                };
+
+                try {
+                    MarkdownParser.parse(content, renderer);
+                    renderer.closeLists(-1);
+                } finally {
+                    if (renderer.out != prefaceWriter) {
+                        closePage(renderer.out, null);
+                    }
+                    prefaceWriter.close();
+                }
+
+                try (Writer writer = Files.newBufferedWriter(dir.resolve("index.html"), StandardCharsets.UTF_8);
+                     Reader reader = Files.newBufferedReader(preface, StandardCharsets.UTF_8)) {
+                    writeHead(writer, "Documentation Export");
+                    writeToc(writer, toc);
+                    writer.write("<main>\n");
+                    reader.transferTo(writer);
+                    writer.write("</main>\n</body>\n</html>");
+                }
+            } finally {
+                Files.deleteIfExists(preface);
+            }
+        }
+
+        private static void closePage(Writer page, String nextPage) throws IOException {
+            try (page) {
+                page.write("</main>\n<nav><a href=\"index.html\">Index</a>");
+                if (nextPage != null) {
+                    page.write(" | <a href=\"" + nextPage + "\">Next</a>");
+                }
+                page.write("</nav>\n</body>\n</html>");
+            }
+        }
+
+        private static void writeHead(Writer writer, String title) throws IOException {
+            writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+            escapeHtml(title, writer);
+            writer.write("</title>\n"
+                    + "<style> body { font-family: sans-serif; max-width: 60em; margin: auto; }"
+                    + " pre { font-family: Consolas, monospace; white-space: pre-wrap; background: #f6f8fa; padding: .5em; }"
+                    + " table { border-collapse: collapse; } th, td { border: 1px solid #ccc; padding: .25em .5em; } </style>\n"
+                    + "</head>\n<body>\n");
+        }
+
+        private static void writeToc(Writer writer, List<String[]> toc) throws IOException {
+            if (toc.isEmpty()) {
+                return;
+            }
+            writer.write("<nav id=\"contents\">\n<h2>Contents</h2>\n<ul>\n");
+            for (String[] entry : toc) {
+                writer.write("<li><a href=\"");
+                escapeHtml(entry[1], writer);
+                writer.write("\">");
+                escapeHtml(entry[0], writer);
+                writer.write("</a></li>\n");
+            }
+            writer.write("</ul>\n</nav>\n");
+        }
+
+        /**
+         * Called when a "File: ..." heading starts a new per-file section, before it is written.
+         */
+        @FunctionalInterface
+        private interface SectionListener {
+            void section(String title, String id) throws IOException;
+        }
+
+        private static class HtmlRenderer implements MarkdownHandler {
+            private Writer out;
+            private SectionListener sectionListener;
+            // Open list tags ("ul"/"ol"), one per nesting depth, each with its last <li> still open
+            private final Deque<String> openLists = new ArrayDeque<>();
+            // Number of times each anchor id has been used, to keep ids unique
+            private final Map<String, Integer> ids = new HashMap<>();
+
+            HtmlRenderer(Writer out) {
+                this.out = out;
+            }
+
+            @Override
+            public void heading(int level, String text) throws IOException {
+                closeLists(-1);
+                String plain = MarkdownInline.plain(text);
+                String id = uniqueId(plain);
+                if (level == 2 && plain.startsWith(FILE_SECTION_PREFIX) && sectionListener != null) {
+                    sectionListener.section(plain.substring(FILE_SECTION_PREFIX.length()), id);
+                }
+                out.write("<h" + level + " id=\"" + id + "\">");
+                writeInline(text);
+                out.write("</h" + level + ">\n");
+            }
+
+            @Override
+            public void paragraph(String text) throws IOException {
+                closeLists(-1);
+                out.write("<p>");
+                writeInline(text);
+                out.write("</p>\n");
+            }
+
+            @Override
+            public void codeBlock(String language, List<String> lines) throws IOException {
+                closeLists(-1);
+                out.write(language.isEmpty() ? "<pre><code>" : "<pre><code class=\"language-");
+                if (!language.isEmpty()) {
+                    escapeHtml(language, out);
+                    out.write("\">");
+                }
+                for (String line : lines) {
+                    escapeHtml(line, out);
+                    out.write('\n');
+                }
+                out.write("</code></pre>\n");
+            }
+
+            @Override
+            public void listItem(int number, int depth, String text) throws IOException {
+                String tag = number > 0 ? "ol" : "ul";
+                closeLists(depth);
+                if (openLists.size() == depth + 1) {
+                    if (openLists.peek().equals(tag)) {
+                        out.write("</li>\n");
+                    } else {
+                        closeLists(depth - 1);
+                    }
+                }
+                // Nested lists open inside the parent's still-open <li>
+                while (openLists.size() < depth + 1) {
+                    boolean innermost = openLists.size() == depth;
+                    out.write(innermost && number > 1 ? "<ol start=\"" + number + "\">\n" : "<" + tag + ">\n");
+                    openLists.push(tag);
+                    if (!innermost) {
+                        out.write("<li>");
+                    }
+                }
+                out.write("<li>");
+                writeInline(text);
+            }
+
+            @Override
+            public void table(List<String> header, List<List<String>> rows) throws IOException {
+                closeLists(-1);
+                out.write("<table>\n<thead><tr>");
+                for (String cell : header) {
+                    out.write("<th>");
+                    writeInline(cell);
+                    out.write("</th>");
+                }
+                out.write("</tr></thead>\n<tbody>\n");
+                for (List<String> row : rows) {
+                    out.write("<tr>");
+                    for (String cell : row) {
+                        out.write("<td>");
+                        writeInline(cell);
+                        out.write("</td>");
+                    }
+                    out.write("</tr>\n");
+                }
+                out.write("</tbody>\n</table>\n");
+            }
+
+            @Override
+            public void rule() throws IOException {
+                closeLists(-1);
+                out.write("<hr>\n");
+            }
+
+            /**
+             * Lower-case slug of the heading text, suffixed with a counter when already used.
+             */
+            private String uniqueId(String text) {
+                StringBuilder slug = new StringBuilder(text.length());
+                for (int i = 0; i < text.length(); i++) {
+                    char c = Character.toLowerCase(text.charAt(i));
+                    if (Character.isLetterOrDigit(c) && c < 0x80) {
+                        slug.append(c);
+                    } else if (!slug.isEmpty() && slug.charAt(slug.length() - 1) != '-') {
+                        slug.append('-');
+                    }
+                }
+                if (!slug.isEmpty() && slug.charAt(slug.length() - 1) == '-') {
+                    slug.setLength(slug.length() - 1);
+                }
+                String base = slug.isEmpty() ? "section" : slug.toString();
+                int seen = ids.merge(base, 1, Integer::sum);
+                return seen == 1 ? base : base + "-" + seen;
+            }
+
+            /**
+             * Closes nested lists until at most {@code depth + 1} remain open.
+             */
+            void closeLists(int depth) throws IOException {
+                while (openLists.size() > depth + 1) {
+                    out.write("</li>\n</" + openLists.pop() + ">\n");
+                }
+            }
+
+            private void writeInline(String text) throws IOException {
+                for (MarkdownInline.Span span : MarkdownInline.spans(text)) {
+                    boolean link = span.link() != null && MarkdownInline.isSafeLink(span.link());
+                    if (link) {
+                        out.write("<a href=\"");
+                        escapeHtml(span.link(), out);
+                        out.write("\">");
+                    }
+                    if (span.bold()) {
+                        out.write("<strong>");
+                    }
+                    if (span.italic()) {
+                        out.write("<em>");
+                    }
+                    if (span.code()) {
+                        out.write("<code>");
+                    }
+                    escapeHtml(span.text(), out);
+                    if (span.code()) {
+                        out.write("</code>");
+                    }
+                    if (span.italic()) {
+                        out.write("</em>");
+                    }
+                    if (span.bold()) {
+                        out.write("</strong>");
+                    }
+                    if (link) {
+                        out.write("</a>");
+                    }
+                }
+            }
+        }
+
+        /**
+         * Escapes in a single pass, writing runs of safe characters unchanged.
+         */
+        private static void escapeHtml(String s, Writer out) throws IOException {
+            int runStart = 0;
+            for (int i = 0; i < s.length(); i++) {
+                String replacement = switch (s.charAt(i)) {
+                    case '&' -> "&amp;";
+                    case '<' -> "&lt;";
+                    case '>' -> "&gt;";
+                    case '"' -> "&quot;";
+                    case '\'' -> "&#39;";
+                    default -> null;
+                };
+                if (replacement != null) {
+                    out.write(s, runStart, i - runStart);
+                    out.write(replacement);
+                    runStart = i + 1;
+                }
+            }
+            out.write(s, runStart, s.length() - runStart);
         }
     }
 
     public static class JsonExporter implements Exporter {
 
         private final ObjectMapper objectMapper = new ObjectMapper();
+        private final DocumentationRun run;
+        private final boolean ndjson;
+
+        public JsonExporter() {
+            this(null, false);
+        }
+
+        /**
+         * @param run    metadata of the run that produced the document, merged into the file
+         *               records; {@code null} to export the document alone
+         * @param ndjson write newline-delimited JSON (a run line, then one line per file, each
+         *               flushed as written) instead of a single JSON object
+         */
+        public JsonExporter(DocumentationRun run, boolean ndjson) {
+            this.run = run;
+            this.ndjson = ndjson;
+        }
+
+        @Override
+        public String outputPath(String path) {
+            return withExtension(path, ndjson ? ".ndjson" : ".json");
+        }
 
         @Override
         public void export(String path, String content) throws IOException {
-            if (!path.endsWith(".json")) {
-                path += ".json";
+            export(path, new StringReader(content));
+        }
+
+        @Override
+        public void export(String path, Reader content) throws IOException {
+            path = outputPath(path);
+
+            // One record per file section, written as soon as the section has been read
+            try (Writer writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+                if (ndjson) {
+                    generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                    writeRun(generator, "run");
+                    generator.flush();
+                    DocumentAssembler.readSections(content, (fileName, documentation) -> {
+                        writeFile(generator, "file", fileName, documentation);
+                        generator.flush();
+                    });
+                    writer.write('\n');
+                } else {
+                    generator.useDefaultPrettyPrinter();
+                    generator.writeStartObject();
+                    generator.writeFieldName("run");
+                    writeRun(generator, null);
+                    generator.writeArrayFieldStart("files");
+                    DocumentAssembler.readSections(content,
+                            (fileName, documentation) -> writeFile(generator, null, fileName, documentation));
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+            }
+        }
+
+        /**
+         * Reads back a JSON or NDJSON export, adding each file's documentation to {@code document}
+         * one section at a time. Returns the run it records, with a record for every file exported
+         * with one; the run fields are {@code null} if the export was written without a run.
+         */
+        public static DocumentationRun read(Path path, DocumentAssembler document) throws IOException {
+            ObjectMapper objectMapper = new ObjectMapper();
+            JsonNode run = objectMapper.createObjectNode();
+            Map<String, DocumentationRecord> records = new TreeMap<>();
+
+            try (JsonParser parser = objectMapper.getFactory().createParser(path.toFile())) {
+                if (path.toString().endsWith(".ndjson")) {
+                    MappingIterator<JsonNode> lines = objectMapper.readValues(parser, JsonNode.class);
+                    while (lines.hasNext()) {
+                        JsonNode line = lines.next();
+                        switch (line.path("type").asText()) {
+                            case "run" -> run = line;
+                            case "file" -> readFile(line, document, records);
+                            default -> { }
+                        }
+                    }
+                } else {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        throw new IOException("Not a documentation export: " + path);
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        JsonToken value = parser.nextToken();
+                        if (field.equals("run") && value == JsonToken.START_OBJECT) {
+                            run = objectMapper.readTree(parser);
+                        } else if (field.equals("files") && value == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                readFile(objectMapper.readTree(parser), document, records);
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+
+            String generatedAt = text(run, "generatedAt");
+            return new DocumentationRun(text(run, "repository"), text(run, "commitSha"),
+                    text(run, "model"), run.path("temperature").asDouble(),
+                    run.path("maxTokens").asInt(), generatedAt != null ? Instant.parse(generatedAt) : null, records);
+        }
+
+        private static void readFile(JsonNode file, DocumentAssembler document, Map<String, DocumentationRecord> records)
+                throws IOException {
+            String fileName = text(file, "path");
+            if (fileName == null) {
+                throw new IOException("File record without a path");
+            }
+            document.addSection(fileName, file.path("documentation").asText());
+            if (file.has("source")) {
+                records.put(fileName, new DocumentationRecord(fileName, text(file, "blobSha"),
+                        text(file, "contentHash"), text(file, "model"),
+                        text(file, "promptHash"), file.path("promptTokens").asInt(-1),
+                        file.path("completionTokens").asInt(-1), file.path("latencyMillis").asLong(-1),
+                        file.path("source").asText()));
+            }
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value != null && value.isTextual() ? value.textValue() : null;
+        }
+
+        private void writeRun(JsonGenerator generator, String type) throws IOException {
+            generator.writeStartObject();
+            if (type != null) {
+                generator.writeStringField("type", type);
             }
+            if (run != null) {
+                generator.writeStringField("repository", run.repository());
+                generator.writeStringField("commitSha", run.commitSha());
+                generator.writeStringField("model", run.model());
+                generator.writeNumberField("temperature", run.temperature());
+                generator.writeNumberField("maxTokens", run.maxTokens());
+                generator.writeStringField("generatedAt", run.generatedAt().toString());
+            }
+            generator.writeEndObject();
+        }
 
-            Map<String, String> jsonMap = Map.of("documentation", content);
+        private void writeFile(JsonGenerator generator, String type, String fileName, String documentation)
+                throws IOException {
+            DocumentationRecord record = run != null ? run.files().get(fileName) : null;
 
-            // Write JSON to file
-            try (FileWriter writer = new FileWriter(path)) {
-                objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, jsonMap);
+            generator.writeStartObject();
+            if (type != null) {
+                generator.writeStringField("type", type);
+            }
+            generator.writeStringField("path", fileName);
+            if (record != null) {
+                generator.writeStringField("blobSha", record.blobSha());
+                generator.writeStringField("contentHash", record.contentHash());
+                generator.writeStringField("model", record.model());
+                generator.writeStringField("promptHash", record.promptHash());
+                generator.writeStringField("source", record.source());
+                if (record.promptTokens() >= 0) {
+                    generator.writeNumberField("promptTokens", record.promptTokens());
+                }
+                if (record.completionTokens() >= 0) {
+                    generator.writeNumberField("completionTokens", record.completionTokens());
+                }
+                if (record.latencyMillis() >= 0) {
+                    generator.writeNumberField("latencyMillis", record.latencyMillis());
+                }
             }
+            generator.writeStringField("documentation", documentation);
+            generator.writeEndObject();
         }
     }
 }
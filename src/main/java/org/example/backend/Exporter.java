@@ -1,7 +1,31 @@
 package org.example.backend;
 
 import java.io.IOException;
+import java.io.Reader;
 
 public interface Exporter {
     void export(String path, String content) throws IOException;
+
+    /**
+     * The file or directory that exporting to {@code path} writes, once the exporter has added
+     * its extension.
+     */
+    default String outputPath(String path) {
+        return path;
+    }
+
+    /**
+     * Exports a document read from {@code content}, e.g. {@link DocumentAssembler#openReader()}.
+     * Implementations that can write incrementally override this; the default buffers the whole
+     * document in memory.
+     */
+    default void export(String path, Reader content) throws IOException {
+        StringBuilder buffer = new StringBuilder();
+        char[] chunk = new char[8192];
+        int read;
+        while ((read = content.read(chunk)) != -1) {
+            buffer.append(chunk, 0, read);
+        }
+        export(path, buffer.toString());
+    }
 }
@@ -0,0 +1,212 @@
+package org.example.backend;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only record of the file sections a run has completed, so that a run killed by a crash,
+ * a network failure or a restart can pick up where it stopped instead of paying for every request
+ * again. There is one journal per repository commit; each line is a JSON object holding a section
+ * and its {@link DocumentationRecord}. Writes are forced to disk every 16 entries, and otherwise
+ * by a background sync at most a second after they were appended, so a crash loses at most the
+ * last second of work. A torn last line left by a crash is dropped when the journal is reopened.
+ * <p>
+ * Only the key and file position of each entry are kept in memory; section text is read back from
+ * the journal when it is reused, so the journal does not hold the document on the heap.
+ */
+public class GenerationJournal implements Closeable {
+    private static final int SYNC_EVERY_RECORDS = 16;
+    private static final long SYNC_DELAY_MILLIS = 1000;
+    private static final ScheduledExecutorService SYNCER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "journal-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A journaled section. {@code key} is the {@link DocumentationCache#key cache key} of the
+     * prompt it answered, so entries from a different prompt or model are not reused.
+     */
+    public record Entry(String path, String key, String documentation, DocumentationRecord record) {
+    }
+
+    /**
+     * Where the line of the latest entry for a path is in the journal file.
+     */
+    private record Location(String key, long offset, int length) {
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Location> entries = new HashMap<>();
+    private int unsynced;
+    private ScheduledFuture<?> pendingSync;
+    // A background sync that failed, reported by the next append or close
+    private IOException syncFailure;
+
+    private GenerationJournal(Path file, boolean resume) throws IOException {
+        this.file = file;
+        if (!resume) {
+            Files.deleteIfExists(file);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // Drop anything after the last complete line
+        channel.truncate(load());
+        channel.position(channel.size());
+    }
+
+    /**
+     * Opens the journal of {@code repoUrl} at {@code commitSha} under {@code directory}.
+     *
+     * @param resume keep the entries of an earlier, unfinished run; otherwise start empty
+     */
+    public static GenerationJournal open(Path directory, String repoUrl, String commitSha, boolean resume)
+            throws IOException {
+        Files.createDirectories(directory);
+        String name = DocumentationCache.sha256(repoUrl, commitSha != null ? commitSha : "") + ".journal";
+        return new GenerationJournal(directory.resolve(name), resume);
+    }
+
+    /**
+     * The journaled section for {@code path}, read back from disk, or {@code null} if there is none
+     * or it answered a prompt other than {@code key}.
+     */
+    public synchronized Entry get(String path, String key) throws IOException {
+        Location location = entries.get(path);
+        if (location == null || !location.key().equals(key)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(location.length());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, location.offset() + buffer.position()) < 0) {
+                throw new IOException("Journal " + file + " ends inside an entry");
+            }
+        }
+        return objectMapper.readValue(buffer.array(), Entry.class);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Appends a completed section. It is forced to disk within {@value #SYNC_DELAY_MILLIS} ms, or
+     * sooner when the batch fills up or the journal is closed.
+     */
+    public synchronized void append(Entry entry) throws IOException {
+        throwSyncFailure();
+        byte[] line = objectMapper.writeValueAsBytes(entry);
+        long offset = channel.position();
+        ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        entries.put(entry.path(), new Location(entry.key(), offset, line.length));
+
+        unsynced++;
+        if (unsynced >= SYNC_EVERY_RECORDS) {
+            sync();
+        } else if (pendingSync == null) {
+            pendingSync = SYNCER.schedule(this::backgroundSync, SYNC_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Forces appended entries to disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (pendingSync != null) {
+            pendingSync.cancel(false);
+            pendingSync = null;
+        }
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    private synchronized void backgroundSync() {
+        pendingSync = null;
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            syncFailure = e;
+        }
+    }
+
+    private void throwSyncFailure() throws IOException {
+        if (syncFailure != null) {
+            IOException failure = syncFailure;
+            syncFailure = null;
+            throw failure;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                sync();
+                throwSyncFailure();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Closes and removes the journal once its run has finished and nothing needs resuming.
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Reads every complete line into {@link #entries} and returns the byte length they cover.
+     */
+    private long load() throws IOException {
+        long valid = 0;
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(0)));
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            try {
+                Entry entry = objectMapper.readValue(line.toByteArray(), Entry.class);
+                entries.put(entry.path(), new Location(entry.key(), valid, line.size()));
+            } catch (JsonProcessingException e) {
+                break;
+            }
+            valid += line.size() + 1;
+            line.reset();
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.backend;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the block-level structure of a Markdown document from {@link MarkdownParser}, one
+ * complete block per call. Inline markup (emphasis, code spans, links) is left in the text; see
+ * {@link MarkdownInline} to split it. Unneeded callbacks can be left as no-ops.
+ */
+public interface MarkdownHandler {
+    default void heading(int level, String text) throws IOException {
+    }
+
+    /**
+     * A paragraph, with its source lines joined by single spaces.
+     */
+    default void paragraph(String text) throws IOException {
+    }
+
+    /**
+     * A fenced code block; {@code language} is empty when the fence names none.
+     */
+    default void codeBlock(String language, List<String> lines) throws IOException {
+    }
+
+    /**
+     * A list item. {@code number} is the item's number for ordered lists and 0 for bullets;
+     * {@code depth} is 0 for top-level items.
+     */
+    default void listItem(int number, int depth, String text) throws IOException {
+    }
+
+    /**
+     * A pipe table; rows may have fewer or more cells than the header.
+     */
+    default void table(List<String> header, List<List<String>> rows) throws IOException {
+    }
+
+    default void rule() throws IOException {
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits inline Markdown (code spans, bold, italics and links) into styled runs of plain text.
+ */
+public final class MarkdownInline {
+
+    /**
+     * A run of text with uniform styling; {@code link} is the target URL or {@code null}.
+     */
+    public record Span(String text, boolean bold, boolean italic, boolean code, String link) {
+    }
+
+    private MarkdownInline() {
+    }
+
+    public static List<Span> spans(String text) {
+        List<Span> spans = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        boolean bold = false;
+        boolean italic = false;
+
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+
+            if (c == '\\' && i + 1 < text.length() && isPunctuation(text.charAt(i + 1))) {
+                run.append(text.charAt(i + 1));
+                i += 2;
+            } else if (c == '`') {
+                int ticks = count(text, i, '`');
+                int close = text.indexOf("`".repeat(ticks), i + ticks);
+                if (close < 0) {
+                    run.append(text, i, i + ticks);
+                    i += ticks;
+                    continue;
+                }
+                emit(spans, run, bold, italic);
+                spans.add(new Span(text.substring(i + ticks, close).strip(), false, false, true, null));
+                i = close + ticks;
+            } else if ((c == '*' || c == '_') && count(text, i, c) >= 2 && canToggle(text, i, 2, bold)) {
+                emit(spans, run, bold, italic);
+                bold = !bold;
+                i += 2;
+            } else if ((c == '*' || (c == '_' && isBoundary(text, i))) && canToggle(text, i, 1, italic)) {
+                emit(spans, run, bold, italic);
+                italic = !italic;
+                i++;
+            } else if (c == '[') {
+                int labelEnd = text.indexOf("](", i);
+                int urlEnd = labelEnd < 0 ? -1 : text.indexOf(')', labelEnd);
+                if (urlEnd < 0) {
+                    run.append(c);
+                    i++;
+                    continue;
+                }
+                emit(spans, run, bold, italic);
+                spans.add(new Span(text.substring(i + 1, labelEnd), bold, italic, false,
+                        text.substring(labelEnd + 2, urlEnd).strip()));
+                i = urlEnd + 1;
+            } else {
+                run.append(c);
+                i++;
+            }
+        }
+        emit(spans, run, bold, italic);
+        return spans;
+    }
+
+    /**
+     * The text with all inline markup removed.
+     */
+    public static String plain(String text) {
+        List<Span> spans = spans(text);
+        if (spans.size() == 1) {
+            return spans.get(0).text();
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (Span span : spans) {
+            sb.append(span.text());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Whether a link target is safe to make clickable: relative and {@code #} links, or
+     * {@code http}, {@code https} and {@code mailto} URLs. Documentation comes from the LLM and,
+     * through it, from repository content, so {@code javascript:}, {@code data:} and other schemes
+     * are rendered as plain text.
+     */
+    public static boolean isSafeLink(String link) {
+        // Browsers ignore whitespace and control characters inside a scheme ("java\tscript:")
+        StringBuilder scheme = new StringBuilder();
+        for (int i = 0; i < link.length(); i++) {
+            char c = link.charAt(i);
+            if (c == ':') {
+                String name = scheme.toString().toLowerCase(Locale.ROOT);
+                return name.equals("http") || name.equals("https") || name.equals("mailto");
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                return true;
+            }
+            if (c > ' ' && c != 0x7f) {
+                scheme.append(c);
+            }
+        }
+        return true;
+    }
+
+    private static void emit(List<Span> spans, StringBuilder run, boolean bold, boolean italic) {
+        if (!run.isEmpty()) {
+            spans.add(new Span(run.toString(), bold, italic, false, null));
+            run.setLength(0);
+        }
+    }
+
+    private static int count(String text, int from, char c) {
+        int n = 0;
+        while (from + n < text.length() && text.charAt(from + n) == c) {
+            n++;
+        }
+        return n;
+    }
+
+    // A delimiter opens only before non-space text and closes only after it, so "a * b" stays literal
+    private static boolean canToggle(String text, int i, int length, boolean open) {
+        if (open) {
+            return i > 0 && !Character.isWhitespace(text.charAt(i - 1));
+        }
+        return i + length < text.length() && !Character.isWhitespace(text.charAt(i + length));
+    }
+
+    // Intra-word underscores (snake_case) are literal
+    private static boolean isBoundary(String text, int i) {
+        boolean before = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+        boolean after = i + 1 >= text.length() || !Character.isLetterOrDigit(text.charAt(i + 1));
+        return before || after;
+    }
+
+    private static boolean isPunctuation(char c) {
+        return "\\`*_{}[]()#+-.!|<>".indexOf(c) >= 0;
+    }
+}
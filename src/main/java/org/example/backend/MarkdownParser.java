@@ -0,0 +1,166 @@
+package org.example.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Line-oriented parser for the Markdown subset LLMs produce: ATX headings, paragraphs, fenced
+ * code, bullet and numbered lists, pipe tables and horizontal rules. Blocks are handed to a
+ * {@link MarkdownHandler} as soon as they end, so memory use is bounded by the largest block
+ * rather than the document.
+ */
+public final class MarkdownParser {
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)(?:\\s+#+)?\\s*$");
+    private static final Pattern RULE = Pattern.compile("^(?:(?:\\*\\s*){3,}|(?:-\\s*){3,}|(?:_\\s*){3,})$");
+    private static final Pattern LIST_ITEM = Pattern.compile("^(\\s*)(?:([-*+])|(\\d{1,9})[.)])\\s+(.*)$");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\|?\\s*:?-+:?\\s*(?:\\|\\s*:?-+:?\\s*)*\\|?$");
+
+    private final MarkdownHandler handler;
+    private final StringBuilder paragraph = new StringBuilder();
+    private List<String> tableHeader;
+    private List<List<String>> tableRows;
+    private String fence;
+    private String codeLanguage;
+    private List<String> codeLines;
+
+    private MarkdownParser(MarkdownHandler handler) {
+        this.handler = handler;
+    }
+
+    public static void parse(Reader content, MarkdownHandler handler) throws IOException {
+        MarkdownParser parser = new MarkdownParser(handler);
+        BufferedReader reader = content instanceof BufferedReader br ? br : new BufferedReader(content);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.line(line);
+        }
+        parser.finish();
+    }
+
+    private void line(String line) throws IOException {
+        if (fence != null) {
+            if (line.strip().startsWith(fence)) {
+                handler.codeBlock(codeLanguage, codeLines);
+                fence = null;
+                codeLines = null;
+            } else {
+                codeLines.add(line);
+            }
+            return;
+        }
+
+        String trimmed = line.strip();
+        if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+            flush();
+            fence = trimmed.substring(0, 3);
+            codeLanguage = trimmed.substring(3).strip();
+            codeLines = new ArrayList<>();
+            return;
+        }
+
+        if (trimmed.isEmpty()) {
+            flush();
+            return;
+        }
+
+        if (trimmed.startsWith("|")) {
+            flushParagraph();
+            if (tableHeader == null) {
+                tableHeader = cells(trimmed);
+                tableRows = new ArrayList<>();
+            } else if (!(tableRows.isEmpty() && TABLE_SEPARATOR.matcher(trimmed).matches())) {
+                tableRows.add(cells(trimmed));
+            }
+            return;
+        }
+        flushTable();
+
+        Matcher heading = HEADING.matcher(trimmed);
+        if (heading.matches()) {
+            flushParagraph();
+            handler.heading(heading.group(1).length(), heading.group(2));
+            return;
+        }
+
+        if (RULE.matcher(trimmed).matches()) {
+            flushParagraph();
+            handler.rule();
+            return;
+        }
+
+        Matcher item = LIST_ITEM.matcher(line);
+        if (item.matches()) {
+            flushParagraph();
+            int depth = item.group(1).replace("\t", "    ").length() / 2;
+            int number = item.group(3) != null ? Integer.parseInt(item.group(3)) : 0;
+            handler.listItem(number, depth, item.group(4).strip());
+            return;
+        }
+
+        if (!paragraph.isEmpty()) {
+            paragraph.append(' ');
+        }
+        paragraph.append(trimmed);
+    }
+
+    private void finish() throws IOException {
+        if (fence != null) {
+            // Unterminated fence: keep the code rather than dropping it
+            handler.codeBlock(codeLanguage, codeLines);
+            fence = null;
+        }
+        flush();
+    }
+
+    private void flush() throws IOException {
+        flushParagraph();
+        flushTable();
+    }
+
+    private void flushParagraph() throws IOException {
+        if (!paragraph.isEmpty()) {
+            handler.paragraph(paragraph.toString());
+            paragraph.setLength(0);
+        }
+    }
+
+    private void flushTable() throws IOException {
+        if (tableHeader != null) {
+            handler.table(tableHeader, tableRows);
+            tableHeader = null;
+            tableRows = null;
+        }
+    }
+
+    private static List<String> cells(String row) {
+        String inner = row;
+        if (inner.startsWith("|")) {
+            inner = inner.substring(1);
+        }
+        if (inner.endsWith("|") && !inner.endsWith("\\|")) {
+            inner = inner.substring(0, inner.length() - 1);
+        }
+
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        for (int i = 0; i < inner.length(); i++) {
+            char c = inner.charAt(i);
+            if (c == '\\' && i + 1 < inner.length() && inner.charAt(i + 1) == '|') {
+                cell.append('|');
+                i++;
+            } else if (c == '|') {
+                cells.add(cell.toString().strip());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().strip());
+        return cells;
+    }
+}
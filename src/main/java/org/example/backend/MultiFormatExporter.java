@@ -0,0 +1,94 @@
+package org.example.backend;
+
+import org.example.metrics.PipelineMetrics;
+
+import java.io.Reader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Exports one document to several formats at once. Each exporter streams the document through a
+ * reader of its own, so no format needs the whole document on the heap, and the exporters run in
+ * parallel on a pool sized to the CPU count, since PDF and DOCX rendering is CPU-bound. A failing
+ * format is reported without stopping the others.
+ */
+public class MultiFormatExporter {
+
+    /**
+     * Outcome of one format; {@code path} is the file or directory the exporter wrote and
+     * {@code error} is {@code null} on success.
+     */
+    public record ExportResult(String format, String path, Duration duration, Exception error) {
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    private final Map<String, Exporter> exporters;
+
+    /**
+     * @param exporters exporters keyed by a display name, in reporting order
+     */
+    public MultiFormatExporter(Map<String, Exporter> exporters) {
+        this.exporters = new LinkedHashMap<>(exporters);
+    }
+
+    /**
+     * Exports the document with every exporter. {@code content} is called once per format and must
+     * return a fresh reader positioned at the start of the document, e.g.
+     * {@link DocumentAssembler#openReader()}. Each exporter appends its own extension to
+     * {@code basePath}.
+     */
+    public List<ExportResult> exportAll(String basePath, Supplier<Reader> content, Consumer<String> logger)
+            throws InterruptedException {
+        int threads = Math.max(1, Math.min(exporters.size(), Runtime.getRuntime().availableProcessors()));
+        List<Future<ExportResult>> futures = new ArrayList<>(exporters.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Map.Entry<String, Exporter> entry : exporters.entrySet()) {
+                String format = entry.getKey();
+                Exporter exporter = entry.getValue();
+                String path = exporter.outputPath(basePath);
+
+                futures.add(executor.submit(() -> {
+                    logger.accept("Exporting " + format + "...");
+                    long start = System.nanoTime();
+                    try (Reader reader = content.get()) {
+                        exporter.export(basePath, reader);
+                    } catch (Exception e) {
+                        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+                        logger.accept("Failed " + format + " after " + elapsed.toMillis() + " ms: " + e.getMessage());
+                        return new ExportResult(format, path, elapsed, e);
+                    }
+                    Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+                    PipelineMetrics.export(format).record(elapsed.toNanos());
+                    logger.accept("Exported " + format + " in " + elapsed.toMillis() + " ms");
+                    return new ExportResult(format, path, elapsed, null);
+                }));
+            }
+
+            List<ExportResult> results = new ArrayList<>(futures.size());
+            for (Future<ExportResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // Export exceptions are captured in the result; only errors end up here
+                    throw new IllegalStateException("Exporter crashed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.backend;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Documents a queue of repositories at once. Every repository's per-file requests draw from one
+ * {@link RequestScheduler}, so the repositories share {@link Settings#getConcurrency()} request
+ * slots in proportion to their priorities and the provider quota (already shared through
+ * {@code OpenAIService}'s rate limiter) stays busy while any repository has work left. Only a
+ * limited number of repositories are fetched and held at a time; higher priorities start first.
+ */
+public class RepositoryScheduler {
+    public static final int DEFAULT_MAX_ACTIVE_REPOSITORIES = 4;
+
+    /**
+     * Receives each finished repository's document, e.g. to export it, before it is closed.
+     */
+    @FunctionalInterface
+    public interface CompletionHandler {
+        void completed(String repoUrl, DocumentationGenerator generator, DocumentAssembler document)
+                throws IOException, InterruptedException;
+    }
+
+    /**
+     * Outcome of one repository; {@code error} is {@code null} on success.
+     */
+    public record Result(String repoUrl, int priority, Duration duration, Exception error) {
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    private record Job(String repoUrl, int priority, int sequence) {
+    }
+
+    private final Settings settings;
+    private final String outputPath;
+    private final String customPrompt;
+    private final int maxActiveRepositories;
+    private final List<Job> jobs = new ArrayList<>();
+    private volatile boolean resume;
+    private volatile Function<String, Path> previousExports;
+    private volatile DocumentationCache cache = DocumentationCache.defaultCache();
+
+    public RepositoryScheduler(Settings settings, String outputPath, String customPrompt) {
+        this(settings, outputPath, customPrompt, DEFAULT_MAX_ACTIVE_REPOSITORIES);
+    }
+
+    public RepositoryScheduler(Settings settings, String outputPath, String customPrompt, int maxActiveRepositories) {
+        if (maxActiveRepositories <= 0) {
+            throw new IllegalArgumentException("Active repository limit must be positive");
+        }
+        this.settings = settings;
+        this.outputPath = outputPath;
+        this.customPrompt = customPrompt;
+        this.maxActiveRepositories = maxActiveRepositories;
+    }
+
+    /**
+     * Queues a repository. Priority is a positive weight: it orders the start of repositories and
+     * sets their share of request slots while running.
+     */
+    public synchronized void submit(String repoUrl, int priority) {
+        if (priority <= 0) {
+            throw new IllegalArgumentException("Priority must be positive");
+        }
+        jobs.add(new Job(repoUrl, priority, jobs.size()));
+    }
+
+    /**
+     * Cache shared by the repositories' generators, or {@code null} to always call the LLM.
+     */
+    public void setCache(DocumentationCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Resumes each repository from the journal of an interrupted run, see
+     * {@link DocumentationGenerator#setResume}.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Documents incrementally: {@code previousExports} maps a repository URL to the JSON or NDJSON
+     * export of its previous run, or to {@code null} to document every file. See
+     * {@link DocumentationGenerator#generateIncremental}.
+     */
+    public void setPreviousExports(Function<String, Path> previousExports) {
+        this.previousExports = previousExports;
+    }
+
+    /**
+     * Runs every queued repository and returns their results in submission order. A failing
+     * repository is reported in its result without stopping the others.
+     */
+    public List<Result> runAll(CompletionHandler handler, Consumer<String> logger) throws InterruptedException {
+        PriorityQueue<Job> queue = new PriorityQueue<>(Comparator.comparingInt(Job::priority).reversed()
+                .thenComparingInt(Job::sequence));
+        synchronized (this) {
+            queue.addAll(jobs);
+            jobs.clear();
+        }
+
+        RequestScheduler requests = new RequestScheduler(settings.getConcurrency());
+        Semaphore active = new Semaphore(maxActiveRepositories);
+        List<Job> started = new ArrayList<>(queue.size());
+        List<Future<Result>> futures = new ArrayList<>(queue.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                while (!queue.isEmpty()) {
+                    Job job = queue.poll();
+                    active.acquire();
+                    started.add(job);
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return run(job, requests, handler, logger);
+                        } finally {
+                            active.release();
+                        }
+                    }));
+                }
+
+                Result[] results = new Result[started.size()];
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        results[started.get(i).sequence()] = futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        // run() reports failures in its result; only errors end up here
+                        throw new IllegalStateException("Repository job crashed", e.getCause());
+                    }
+                }
+                return List.of(results);
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                throw e;
+            }
+        }
+    }
+
+    private Result run(Job job, RequestScheduler requests, CompletionHandler handler, Consumer<String> logger)
+            throws InterruptedException {
+        String repoUrl = job.repoUrl();
+        Consumer<String> repoLogger = message -> logger.accept("[" + repoUrl + "] " + message);
+        long start = System.nanoTime();
+
+        DocumentationGenerator generator = new DocumentationGenerator(repoUrl, outputPath, customPrompt, settings, cache);
+        generator.setRequestLane(requests.lane(repoUrl, job.priority()));
+        generator.setResume(resume);
+        try (DocumentAssembler document = generate(repoUrl, generator, repoLogger)) {
+            handler.completed(repoUrl, generator, document);
+        } catch (IOException | RuntimeException e) {
+            repoLogger.accept("Failed: " + e.getMessage());
+            return new Result(repoUrl, job.priority(), Duration.ofNanos(System.nanoTime() - start), e);
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        repoLogger.accept("Finished in " + elapsed.toSeconds() + " s");
+        return new Result(repoUrl, job.priority(), elapsed, null);
+    }
+
+    private DocumentAssembler generate(String repoUrl, DocumentationGenerator generator, Consumer<String> logger)
+            throws IOException, InterruptedException {
+        Function<String, Path> previous = previousExports;
+        Path previousExport = previous != null ? previous.apply(repoUrl) : null;
+        return previousExport != null
+                ? generator.generateIncremental(previousExport, logger)
+                : generator.generateDocument(logger);
+    }
+}
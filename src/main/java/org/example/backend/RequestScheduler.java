@@ -0,0 +1,136 @@
+package org.example.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares a fixed number of concurrent LLM request slots between several lanes, one per repository.
+ * A free slot always goes to the waiting lane that has received the least service relative to its
+ * priority (stride scheduling), so a small repository is served at its share of the slots even
+ * while a monorepo has thousands of requests queued, and no slot stays idle while any lane waits.
+ * <p>
+ * Waiters park on a {@link ReentrantLock} condition rather than in {@code Object.wait()}, so the
+ * thousands of virtual threads a large run queues here do not pin their carrier threads.
+ */
+public class RequestScheduler {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<Lane> lanes = new ArrayList<>();
+    private int available;
+    // Pass of the most recently served lane; lanes becoming active start here instead of at zero
+    private double virtualTime;
+
+    public RequestScheduler(int slots) {
+        if (slots <= 0) {
+            throw new IllegalArgumentException("Slots must be positive");
+        }
+        this.available = slots;
+    }
+
+    /**
+     * Registers a lane. A lane with priority 2 gets twice the slots of a lane with priority 1 when
+     * both have work waiting.
+     */
+    public Lane lane(String name, int priority) {
+        if (priority <= 0) {
+            throw new IllegalArgumentException("Priority must be positive");
+        }
+        lock.lock();
+        try {
+            Lane lane = new Lane(name, priority);
+            lanes.add(lane);
+            return lane;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(Lane lane) throws InterruptedException {
+        lock.lock();
+        try {
+            if (lane.waiting == 0 && lane.running == 0) {
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            lane.waiting++;
+            try {
+                while (available == 0 || next() != lane) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                lane.waiting--;
+                // Another lane may have been waiting behind this one
+                changed.signalAll();
+                throw e;
+            }
+            lane.waiting--;
+            lane.running++;
+            available--;
+            virtualTime = lane.pass;
+            lane.pass += 1.0 / lane.priority;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Lane lane) {
+        lock.lock();
+        try {
+            lane.running--;
+            available++;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The waiting lane with the lowest pass, preferring higher priority and then registration
+     * order on ties.
+     */
+    private Lane next() {
+        Lane best = null;
+        for (Lane lane : lanes) {
+            if (lane.waiting > 0 && (best == null || lane.pass < best.pass
+                    || lane.pass == best.pass && lane.priority > best.priority)) {
+                best = lane;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One consumer's view of the scheduler. Every {@link #acquire()} must be paired with a
+     * {@link #release()}.
+     */
+    public class Lane {
+        private final String name;
+        private final int priority;
+        private double pass;
+        private int waiting;
+        private int running;
+
+        private Lane(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        public void acquire() throws InterruptedException {
+            RequestScheduler.this.acquire(this);
+        }
+
+        public void release() {
+            RequestScheduler.this.release(this);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+    }
+}
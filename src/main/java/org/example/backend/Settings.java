@@ -5,6 +5,12 @@ public class Settings {
     private double temperature;
     private int maxTokens;
     private String model;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private String baseUrl = DEFAULT_BASE_URL;
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final String DEFAULT_BASE_URL = "https://api.groq.com/openai/v1";
+    public static final int DEFAULT_CONTEXT_WINDOW = 8192;
 
     public Settings(String apiKey, double temperature, int maxTokens, String model) {
         this.apiKey = apiKey;
@@ -29,6 +35,36 @@ public class Settings {
         return model;
     }
 
+    /**
+     * Maximum number of LLM requests that may be in flight at the same time.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Base URL of the OpenAI-compatible API, without the {@code /chat/completions} path.
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Context length of the model in tokens, taken from the size suffix of names such as
+     * {@code llama3-70b-8192}, or {@link #DEFAULT_CONTEXT_WINDOW} when the name has none.
+     */
+    public int getContextWindow() {
+        int dash = model != null ? model.lastIndexOf('-') : -1;
+        if (dash >= 0) {
+            try {
+                return Integer.parseInt(model.substring(dash + 1));
+            } catch (NumberFormatException ignored) {
+                // Not a size suffix
+            }
+        }
+        return DEFAULT_CONTEXT_WINDOW;
+    }
+
     public void setApiKey(String apiKey) {
         this.apiKey = apiKey;
     }
@@ -45,6 +81,17 @@ public class Settings {
         this.model = model;
     }
 
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+        this.concurrency = concurrency;
+    }
+
 }
 
 
@@ -0,0 +1,426 @@
+package org.example.cli;
+
+import org.example.backend.DocumentationGenerator;
+import org.example.backend.DocumentationPlan;
+import org.example.backend.ExportOptions;
+import org.example.backend.Exporter;
+import org.example.backend.MultiFormatExporter;
+import org.example.backend.RepositoryScheduler;
+import org.example.backend.Settings;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.PrometheusEndpoint;
+import org.example.services.LlmProvider;
+import org.example.services.StubLlmServer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Command-line entry point for running the generator without the Swing UI, e.g. in CI or on a
+ * server. It drives {@link DocumentationGenerator} and the exporters directly and never loads AWT
+ * classes. The exit status tells schedulers what happened (see the {@code EXIT_} constants).
+ */
+public class HeadlessMain {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_GENERATION_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_EXPORT_FAILED = 3;
+    // The metrics endpoint or stub server could not be started, e.g. because its port is taken
+    public static final int EXIT_STARTUP_FAILED = 4;
+    public static final int EXIT_INTERRUPTED = 130;
+
+    private static final String DEFAULT_MODEL = "llama3-70b-8192";
+    private static final String API_KEY_ENV = "GROQ_API_KEY";
+    private static final List<String> ALL_FORMATS = List.of("md", "txt", "pdf", "docx", "html", "html-pages", "json", "ndjson");
+
+    private static final String USAGE = """
+            Usage: documentGenerator [options] <repo-url>[=<priority>]...
+
+            Repositories are documented together and share the request slots in proportion to
+            their priority (default 1).
+
+            Options:
+              --output <dir>          directory for the exported files (default: current directory)
+              --format <list>         comma-separated formats: md, txt, pdf, docx, html, html-pages,
+                                      json, ndjson or all (default: md)
+              --prompt <text>         custom prompt used instead of the default one
+              --prompt-file <file>    read the custom prompt from a file
+              --model <name>          LLM model (default: %s)
+              --temperature <value>   sampling temperature (default: 0.7)
+              --max-tokens <n>        completion limit per request (default: 1000)
+              --concurrency <n>       LLM requests in flight across all repositories (default: %d)
+              --max-active <n>        repositories fetched and documented at a time (default: %d)
+              --api-key <key>         API key (default: $%s)
+              --base-url <url>        OpenAI-compatible API base URL (default: %s)
+              --stub                  answer from an in-process stub server instead of a real LLM
+              --stub-config <list>    stub behaviour as key=value pairs: latency-ms, tokens-per-second,
+                                      completion-tokens, rate-limit, failure, retry-after-ms,
+                                      requests-per-day, tokens-per-minute
+              --metrics-file <file>   write stage metrics in Prometheus text format when done
+              --metrics-port <port>   serve stage metrics for Prometheus at /metrics while running
+              --metrics-bind <addr>   address the metrics endpoint listens on (default: loopback only)
+              --dry-run               estimate requests, tokens and duration without calling the LLM
+              --resume                reuse the files an interrupted run of the same commit documented
+              --incremental           only document files changed since the commit recorded in the
+                                      repository's json or ndjson export in the output directory
+              --help                  show this help
+
+            Exit status: 0 success, 1 generation failed, 2 usage error, 3 export failed,
+            4 metrics endpoint or stub server failed to start, 130 interrupted
+            """.formatted(DEFAULT_MODEL, Settings.DEFAULT_CONCURRENCY,
+            RepositoryScheduler.DEFAULT_MAX_ACTIVE_REPOSITORIES, API_KEY_ENV, Settings.DEFAULT_BASE_URL);
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // Repository URL to scheduling priority, in command-line order
+    private final Map<String, Integer> repositories = new LinkedHashMap<>();
+    private Path outputDir = Path.of(".");
+    private List<String> formats = List.of("md");
+    private String customPrompt;
+    private String model = DEFAULT_MODEL;
+    private double temperature = 0.7;
+    private int maxTokens = 1000;
+    private int concurrency = Settings.DEFAULT_CONCURRENCY;
+    private int maxActive = RepositoryScheduler.DEFAULT_MAX_ACTIVE_REPOSITORIES;
+    private String apiKey = System.getenv(API_KEY_ENV);
+    private boolean dryRun;
+    private boolean resume;
+    private boolean incremental;
+    private String baseUrl = Settings.DEFAULT_BASE_URL;
+    private boolean stub;
+    private String stubConfig = "";
+    private Path metricsFile;
+    private int metricsPort = -1;
+    private InetAddress metricsBind = InetAddress.getLoopbackAddress();
+    private boolean metricsBindSet;
+
+    HeadlessMain(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the command line and returns the process exit status.
+     */
+    public static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        HeadlessMain cli = new HeadlessMain(System.out, System.err);
+        try {
+            if (!cli.parse(args)) {
+                cli.out.print(USAGE);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            cli.err.println("Error: " + e.getMessage());
+            cli.err.println();
+            cli.err.print(USAGE);
+            return EXIT_USAGE;
+        }
+        return cli.execute();
+    }
+
+    /**
+     * Reads the arguments into fields. Returns {@code false} when only help was requested.
+     */
+    private boolean parse(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--help", "-h" -> {
+                    return false;
+                }
+                case "--output" -> outputDir = Path.of(value(args, ++i, arg));
+                case "--format" -> formats = parseFormats(value(args, ++i, arg));
+                case "--prompt" -> customPrompt = value(args, ++i, arg);
+                case "--prompt-file" -> customPrompt = Files.readString(Path.of(value(args, ++i, arg)));
+                case "--model" -> model = value(args, ++i, arg);
+                case "--temperature" -> temperature = parseNumber(value(args, ++i, arg), arg);
+                case "--max-tokens" -> maxTokens = parseInteger(value(args, ++i, arg), arg);
+                case "--concurrency" -> concurrency = parseInteger(value(args, ++i, arg), arg);
+                case "--max-active" -> maxActive = parseInteger(value(args, ++i, arg), arg);
+                case "--api-key" -> apiKey = value(args, ++i, arg);
+                case "--dry-run" -> dryRun = true;
+                case "--resume" -> resume = true;
+                case "--incremental" -> incremental = true;
+                case "--metrics-file" -> metricsFile = Path.of(value(args, ++i, arg));
+                case "--metrics-port" -> metricsPort = parseInteger(value(args, ++i, arg), arg);
+                case "--metrics-bind" -> {
+                    metricsBind = parseAddress(value(args, ++i, arg), arg);
+                    metricsBindSet = true;
+                }
+                case "--base-url" -> baseUrl = value(args, ++i, arg);
+                case "--stub" -> stub = true;
+                case "--stub-config" -> {
+                    stub = true;
+                    stubConfig = value(args, ++i, arg);
+                }
+                default -> {
+                    if (arg.startsWith("-")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    addRepository(arg);
+                }
+            }
+        }
+
+        if (repositories.isEmpty()) {
+            throw new IllegalArgumentException("No repository URL given");
+        }
+        if (maxTokens <= 0 || concurrency <= 0 || maxActive <= 0) {
+            throw new IllegalArgumentException("--max-tokens, --concurrency and --max-active must be positive");
+        }
+        if (!(temperature >= 0 && temperature <= 1)) {
+            throw new IllegalArgumentException("--temperature must be between 0.0 and 1.0");
+        }
+        if (metricsPort > 65535) {
+            throw new IllegalArgumentException("--metrics-port must be between 0 and 65535");
+        }
+        if (metricsBindSet && metricsPort < 0) {
+            throw new IllegalArgumentException("--metrics-bind requires --metrics-port");
+        }
+        boolean keyRequired = !stub && LlmProvider.forBaseUrl(baseUrl).requiresApiKey();
+        if (!dryRun && keyRequired && (apiKey == null || apiKey.isBlank())) {
+            throw new IllegalArgumentException("API key is missing; pass --api-key or set " + API_KEY_ENV);
+        }
+        if (customPrompt != null && customPrompt.isBlank()) {
+            customPrompt = null;
+        }
+        return true;
+    }
+
+    private int execute() {
+        Settings settings = new Settings(apiKey, temperature, maxTokens, model);
+        settings.setConcurrency(concurrency);
+        settings.setBaseUrl(baseUrl);
+        Consumer<String> logger = err::println;
+
+        StubLlmServer stubServer = null;
+        PrometheusEndpoint metricsEndpoint = null;
+        try {
+            if (metricsPort >= 0) {
+                metricsEndpoint = new PrometheusEndpoint(MetricsRegistry.global(), metricsBind, metricsPort);
+                logger.accept("Serving metrics at " + metricsEndpoint.getUrl());
+            }
+            if (stub && !dryRun) {
+                stubServer = new StubLlmServer();
+                stubServer.configure(stubConfig);
+                stubServer.start();
+                settings.setBaseUrl(stubServer.getBaseUrl());
+                logger.accept("Using stub LLM server at " + stubServer.getBaseUrl());
+            }
+            return dryRun ? plan(settings) : generate(settings, logger);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_STARTUP_FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted");
+            return EXIT_INTERRUPTED;
+        } finally {
+            if (metricsEndpoint != null) {
+                metricsEndpoint.close();
+            }
+            writeMetrics();
+            if (stubServer != null) {
+                stubServer.close();
+                logger.accept("Stub: " + stubServer.getRequestCount() + " requests, "
+                        + stubServer.getRateLimitedCount() + " rate limited, " + stubServer.getFailureCount()
+                        + " failed, " + stubServer.getGeneratedTokens() + " tokens generated");
+            }
+        }
+    }
+
+    private void writeMetrics() {
+        if (metricsFile == null) {
+            return;
+        }
+        try {
+            MetricsRegistry.global().writePrometheusFile(metricsFile);
+        } catch (IOException e) {
+            err.println("Could not write metrics to " + metricsFile + ": " + e.getMessage());
+        }
+    }
+
+    private int plan(Settings settings) {
+        int status = EXIT_OK;
+        for (Map.Entry<String, Integer> repo : repositories.entrySet()) {
+            try {
+                DocumentationPlan plan = new DocumentationGenerator(repo.getKey(), outputDir.toString(), customPrompt, settings)
+                        .plan(message -> { });
+                out.println(plan.summary());
+                out.println();
+            } catch (IOException | RuntimeException e) {
+                err.println(repo.getKey() + ": " + e.getMessage());
+                status = EXIT_GENERATION_FAILED;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Documents all repositories together through a {@link RepositoryScheduler}, exporting each one
+     * as soon as it is done.
+     */
+    private int generate(Settings settings, Consumer<String> logger) throws InterruptedException {
+        RepositoryScheduler scheduler = new RepositoryScheduler(settings, outputDir.toString(), customPrompt, maxActive);
+        scheduler.setResume(resume);
+        if (incremental) {
+            scheduler.setPreviousExports(repoUrl -> previousExport(repoUrl, logger));
+        }
+        if (stub) {
+            // Filler answers must not end up in the real cache
+            scheduler.setCache(null);
+        }
+        repositories.forEach(scheduler::submit);
+        AtomicBoolean exportFailed = new AtomicBoolean();
+
+        List<RepositoryScheduler.Result> results = scheduler.runAll((repoUrl, generator, document) -> {
+            Files.createDirectories(outputDir);
+            String basePath = outputDir.resolve(baseName(repoUrl)).toAbsolutePath().toString();
+            List<MultiFormatExporter.ExportResult> exports = new MultiFormatExporter(exporters(generator))
+                    .exportAll(basePath, document::openReader, logger);
+            for (MultiFormatExporter.ExportResult result : exports) {
+                if (result.succeeded()) {
+                    out.println(repoUrl + "\t" + result.format() + "\t" + result.path() + "\t" + result.duration().toMillis() + " ms");
+                } else {
+                    err.println(repoUrl + ": " + result.format() + " export failed: " + result.error().getMessage());
+                    exportFailed.set(true);
+                }
+            }
+        }, logger);
+
+        boolean generationFailed = results.stream().anyMatch(result -> !result.succeeded());
+        if (generationFailed) {
+            return EXIT_GENERATION_FAILED;
+        }
+        return exportFailed.get() ? EXIT_EXPORT_FAILED : EXIT_OK;
+    }
+
+    /**
+     * The JSON or NDJSON export an earlier run wrote for the repository, or {@code null} if there
+     * is none and every file has to be documented.
+     */
+    private Path previousExport(String repoUrl, Consumer<String> logger) {
+        for (String extension : List.of(".json", ".ndjson")) {
+            Path export = outputDir.resolve(baseName(repoUrl) + extension);
+            if (Files.isRegularFile(export)) {
+                return export;
+            }
+        }
+        logger.accept("[" + repoUrl + "] No previous json or ndjson export in " + outputDir
+                + "; documenting every file");
+        return null;
+    }
+
+    private Map<String, Exporter> exporters(DocumentationGenerator generator) {
+        Map<String, Exporter> exporters = new LinkedHashMap<>();
+        for (String format : formats) {
+            exporters.put(format, switch (format) {
+                case "md" -> new ExportOptions.MdExporter();
+                case "txt" -> new ExportOptions.TxtExporter();
+                case "pdf" -> new ExportOptions.PdfExporter();
+                case "docx" -> new ExportOptions.DocExporter();
+                case "html" -> new ExportOptions.HtmlExporter();
+                case "html-pages" -> new ExportOptions.HtmlExporter(true);
+                case "json" -> new ExportOptions.JsonExporter(generator.getLastRun(), false);
+                case "ndjson" -> new ExportOptions.JsonExporter(generator.getLastRun(), true);
+                default -> throw new IllegalStateException("Unknown format: " + format);
+            });
+        }
+        return exporters;
+    }
+
+    /**
+     * Adds {@code <repo-url>} or {@code <repo-url>=<priority>}.
+     */
+    private void addRepository(String arg) {
+        int equals = arg.lastIndexOf('=');
+        if (equals < 0) {
+            repositories.put(arg, 1);
+            return;
+        }
+        int priority = parseInteger(arg.substring(equals + 1), arg);
+        if (priority <= 0) {
+            throw new IllegalArgumentException("Priority must be positive: " + arg);
+        }
+        repositories.put(arg.substring(0, equals), priority);
+    }
+
+    private static List<String> parseFormats(String value) {
+        if (value.equals("all")) {
+            return ALL_FORMATS;
+        }
+        List<String> formats = new ArrayList<>();
+        for (String format : value.split(",")) {
+            String trimmed = format.trim();
+            if (!ALL_FORMATS.contains(trimmed)) {
+                throw new IllegalArgumentException("Unknown format: " + trimmed);
+            }
+            if (!formats.contains(trimmed)) {
+                formats.add(trimmed);
+            }
+        }
+        return formats;
+    }
+
+    /**
+     * File name prefix for a repository's exports, e.g. {@code owner-repo}.
+     */
+    private static String baseName(String repoUrl) {
+        String[] parts = repoUrl.split("/");
+        if (parts.length < 5) {
+            throw new IllegalArgumentException("Invalid GitHub repo URL format: " + repoUrl);
+        }
+        String repo = parts[4].endsWith(".git") ? parts[4].substring(0, parts[4].length() - 4) : parts[4];
+        return parts[3] + "-" + repo;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static double parseNumber(String value, String option) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number, got " + value);
+        }
+    }
+
+    private static InetAddress parseAddress(String value, String option) {
+        try {
+            return InetAddress.getByName(value);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(option + " expects an address or host name, got " + value);
+        }
+    }
+
+    private static int parseInteger(String value, String option) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a whole number, got " + value);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package org.example.documentGenerator.ui;
 
 import org.example.backend.DocumentationGenerator;
+import org.example.backend.DocumentationPlan;
+import org.example.backend.DocumentationRun;
 import org.example.backend.ExportOptions;
 import org.example.backend.Exporter;
+import org.example.backend.MultiFormatExporter;
 import org.example.backend.Settings;
 import org.example.services.GitHubMarkdownService;
 import org.example.services.GitHubService;
@@ -12,6 +15,7 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.*;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,9 +41,17 @@ public class DocumentationGeneratorUI extends JFrame {
             "PDF (.pdf)", new ExportOptions.PdfExporter(),
             "Word (.docx)", new ExportOptions.DocExporter(),
             "HTML (.html)", new ExportOptions.HtmlExporter(),
-            "JSON (.json)", new ExportOptions.JsonExporter()
+            "HTML pages (folder)", new ExportOptions.HtmlExporter(true),
+            "JSON (.json)", new ExportOptions.JsonExporter(),
+            "NDJSON (.ndjson)", new ExportOptions.JsonExporter(null, true)
     );
 
+    private static final String ALL_FORMATS = "All formats";
+    private static final String[] EXPORT_FORMATS = {
+            "Markdown (.md)", "Text (.txt)", "PDF (.pdf)", "Word (.docx)", "HTML (.html)", "HTML pages (folder)", "JSON (.json)",
+            "NDJSON (.ndjson)"
+    };
+
     public DocumentationGeneratorUI() {
         setTitle("Documentation Generator");
         setSize(800, 600);
@@ -81,7 +93,11 @@ public class DocumentationGeneratorUI extends JFrame {
         JMenuItem settingsItem = new JMenuItem("Settings");
         settingsItem.addActionListener(e -> openSettingsDialog());
 
+        JMenuItem estimateItem = new JMenuItem("Estimate Run");
+        estimateItem.addActionListener(this::estimateRunClicked);
+
         menu.add(settingsItem);
+        menu.add(estimateItem);
         menuBar.add(menu);
         setJMenuBar(menuBar);
     }
@@ -214,7 +230,8 @@ public class DocumentationGeneratorUI extends JFrame {
         gbc.gridx = 1;
         gbc.gridy = 1;
         gbc.gridwidth = 2;
-        exportFormatComboBox = new JComboBox<>(new String[] {"Markdown (.md)", "Text (.txt)", "PDF (.pdf)", "Word (.docx)", "HTML (.html)", "JSON (.json)"});
+        exportFormatComboBox = new JComboBox<>(EXPORT_FORMATS);
+        exportFormatComboBox.addItem(ALL_FORMATS);
         panel.add(exportFormatComboBox, gbc);
 
         // Save button
@@ -369,6 +386,8 @@ public class DocumentationGeneratorUI extends JFrame {
                 // Pass customPrompt only if not empty; else pass null or empty string as per your constructor's expectation
                 String promptToUse = customPrompt.isEmpty() ? null : customPrompt;
                 documentationGenerator = new DocumentationGenerator(repoUrl, outputPath, promptToUse, appSettings);
+                // Pick up after a failed or killed run of the same commit
+                documentationGenerator.setResume(true);
                 return documentationGenerator.generate(this::publish);
             }
 
@@ -397,6 +416,32 @@ public class DocumentationGeneratorUI extends JFrame {
         }.execute();
     }
 
+    private void estimateRunClicked(ActionEvent e) {
+        String repoUrl = repoUrlField.getText().trim();
+        if (repoUrl.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter a GitHub repository URL.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String customPrompt = customPromptArea.getText().trim();
+
+        new SwingWorker<DocumentationPlan, Void>() {
+            @Override
+            protected DocumentationPlan doInBackground() throws Exception {
+                return new DocumentationGenerator(repoUrl, outputPathField.getText(),
+                        customPrompt.isEmpty() ? null : customPrompt, appSettings).plan(message -> { });
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    JOptionPane.showMessageDialog(DocumentationGeneratorUI.this, get().summary(), "Run Estimate", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(DocumentationGeneratorUI.this, "Error estimating run: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
     private void disableInputs() {
         repoUrlField.setEnabled(false);
         getGitHubContentButton.setEnabled(false);
@@ -426,29 +471,75 @@ public class DocumentationGeneratorUI extends JFrame {
         }
 
         String selectedFormat = (String) exportFormatComboBox.getSelectedItem();
-        Exporter exporter = exporters.get(selectedFormat);
-
-        if (exporter == null) {
+        Map<String, Exporter> selected = new LinkedHashMap<>();
+        if (ALL_FORMATS.equals(selectedFormat)) {
+            for (String format : EXPORT_FORMATS) {
+                selected.put(format, exporters.get(format));
+            }
+        } else if (exporters.containsKey(selectedFormat)) {
+            selected.put(selectedFormat, exporters.get(selectedFormat));
+        } else {
             JOptionPane.showMessageDialog(this, "Unsupported export format: " + selectedFormat, "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
+        // Structured exports carry the provenance of the last generation run
+        DocumentationRun run = documentationGenerator.getLastRun();
+        selected.replaceAll((format, exporter) -> switch (format) {
+            case "JSON (.json)" -> new ExportOptions.JsonExporter(run, false);
+            case "NDJSON (.ndjson)" -> new ExportOptions.JsonExporter(run, true);
+            default -> exporter;
+        });
+
         File output = new File(outputPath);
 
+        // Each exporter appends its own extension
         if (output.isDirectory()) {
-            output = new File(output, "documentation." + selectedFormat);
-        } else {
-            if (!output.getName().endsWith("." + selectedFormat)) {
-                output = new File(output.getAbsolutePath());
-            }
+            output = new File(output, "documentation");
         }
+        String basePath = output.getAbsolutePath();
 
-        try {
-            exporter.export(output.getAbsolutePath(), docContent);
-            JOptionPane.showMessageDialog(this, "Exported successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Error exporting documentation: " + ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
-        }
+        saveButton.setEnabled(false);
+        progressBar.setStringPainted(true);
+        progressBar.setString("Exporting...");
+
+        new SwingWorker<List<MultiFormatExporter.ExportResult>, String>() {
+            @Override
+            protected List<MultiFormatExporter.ExportResult> doInBackground() throws Exception {
+                return new MultiFormatExporter(selected).exportAll(basePath, () -> new StringReader(docContent), this::publish);
+            }
+
+            @Override
+            protected void process(List<String> chunks) {
+                progressBar.setString(chunks.get(chunks.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                saveButton.setEnabled(true);
+                progressBar.setString(null);
+                progressBar.setStringPainted(false);
+                try {
+                    StringBuilder summary = new StringBuilder();
+                    boolean allSucceeded = true;
+                    for (MultiFormatExporter.ExportResult result : get()) {
+                        summary.append(result.format()).append(": ");
+                        if (result.succeeded()) {
+                            summary.append(result.duration().toMillis()).append(" ms\n");
+                        } else {
+                            allSucceeded = false;
+                            summary.append("failed - ").append(result.error().getMessage()).append("\n");
+                        }
+                    }
+                    JOptionPane.showMessageDialog(DocumentationGeneratorUI.this,
+                            (allSucceeded ? "Exported successfully\n\n" : "Some exports failed\n\n") + summary,
+                            allSucceeded ? "Success" : "Export Error",
+                            allSucceeded ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(DocumentationGeneratorUI.this, "Error exporting documentation: " + ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
     private void resetProgress() {
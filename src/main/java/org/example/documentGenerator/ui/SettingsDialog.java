@@ -1,6 +1,7 @@
 package org.example.documentGenerator.ui;
 
 import org.example.backend.Settings;
+import org.example.services.LlmProvider;
 import javax.swing.*;
 import java.awt.*;
 
@@ -9,6 +10,8 @@ public class SettingsDialog extends JDialog {
     private JTextField temperatureField;
     private JTextField maxTokensField;
     private JTextField modelField;
+    private JTextField concurrencyField;
+    private JTextField baseUrlField;
     private JComboBox<String> modelComboBox;
     private Settings settings;
 
@@ -61,6 +64,20 @@ public class SettingsDialog extends JDialog {
         gbc.gridx = 1; gbc.gridy = 3;
         add(modelComboBox, gbc);
 
+        // Concurrency
+        gbc.gridx = 0; gbc.gridy = 4;
+        add(new JLabel("Concurrent Requests:"), gbc);
+        concurrencyField = new JTextField(String.valueOf(currentSettings.getConcurrency()));
+        gbc.gridx = 1; gbc.gridy = 4;
+        add(concurrencyField, gbc);
+
+        // Base URL
+        gbc.gridx = 0; gbc.gridy = 5;
+        add(new JLabel("API Base URL:"), gbc);
+        baseUrlField = new JTextField(currentSettings.getBaseUrl());
+        gbc.gridx = 1; gbc.gridy = 5;
+        add(baseUrlField, gbc);
+
         // Buttons Panel
         JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton saveBtn = new JButton("Save");
@@ -68,7 +85,7 @@ public class SettingsDialog extends JDialog {
         buttons.add(saveBtn);
         buttons.add(cancelBtn);
 
-        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2;
+        gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 2;
         add(buttons, gbc);
 
         saveBtn.addActionListener(e -> onSave());
@@ -80,8 +97,20 @@ public class SettingsDialog extends JDialog {
 
     private void onSave() {
         try {
+            String baseUrl = baseUrlField.getText().trim();
+            if (baseUrl.isEmpty()) {
+                baseUrl = Settings.DEFAULT_BASE_URL;
+            }
+            LlmProvider provider;
+            try {
+                provider = LlmProvider.forBaseUrl(baseUrl);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, "API Base URL must be an absolute http(s) URL.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
             String apiKey = apiKeyField.getText().trim();
-            if (apiKey.isEmpty()) {
+            if (apiKey.isEmpty() && provider.requiresApiKey()) {
                 JOptionPane.showMessageDialog(this, "API Key cannot be empty.", "Validation Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
@@ -104,16 +133,24 @@ public class SettingsDialog extends JDialog {
                 return;
             }
 
+            int concurrency = Integer.parseInt(concurrencyField.getText().trim());
+            if (concurrency <= 0) {
+                JOptionPane.showMessageDialog(this, "Concurrent Requests must be positive.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
             // Update settings object
             settings.setApiKey(apiKey);
             settings.setTemperature(temperature);
             settings.setMaxTokens(maxTokens);
             settings.setModel((String) modelComboBox.getSelectedItem());
+            settings.setConcurrency(concurrency);
+            settings.setBaseUrl(baseUrl);
 
             saved = true;
             setVisible(false);
         } catch (NumberFormatException ex) {
-            JOptionPane.showMessageDialog(this, "Please enter valid numeric values for Temperature and Max Tokens.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Please enter valid numeric values for Temperature, Max Tokens and Concurrent Requests.", "Validation Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
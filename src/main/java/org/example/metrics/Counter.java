@@ -0,0 +1,37 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count, cheap to update from many threads at once.
+ */
+public class Counter extends Metric implements CounterMBean {
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name, String help, String labelName, String labelValue) {
+        super(name, help, labelName, labelValue);
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    String type() {
+        return "counter";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder out) {
+        sample(out, name, null, getCount());
+    }
+}
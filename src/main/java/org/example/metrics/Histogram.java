@@ -0,0 +1,107 @@
+package org.example.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations over fixed buckets from 1 ms to 5 minutes. Recording is a binary
+ * search and two adder increments, with no allocation, so it can sit on every request.
+ */
+public class Histogram extends Metric implements HistogramMBean {
+    private static final double[] BOUNDS_SECONDS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5,
+            10, 30, 60, 120, 300};
+    private static final long[] BOUNDS_NANOS = Arrays.stream(BOUNDS_SECONDS).mapToLong(s -> (long) (s * 1e9)).toArray();
+
+    // One more bucket than bounds, for values above the last one
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram(String name, String help, String labelName, String labelValue) {
+        super(name, help, labelName, labelValue);
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int index = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+        buckets[index >= 0 ? index : -index - 1].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    @Override
+    public double getMeanSeconds() {
+        long count = getCount();
+        return count == 0 ? 0 : getSumSeconds() / count;
+    }
+
+    @Override
+    public double getP50Seconds() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public double getP99Seconds() {
+        return percentile(0.99);
+    }
+
+    private double percentile(double fraction) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_SECONDS[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    String type() {
+        return "histogram";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder out) {
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            cumulative += buckets[i].sum();
+            sample(out, name + "_bucket", "le=\"" + BOUNDS_SECONDS[i] + "\"", cumulative);
+        }
+        cumulative += buckets[BOUNDS_SECONDS.length].sum();
+        sample(out, name + "_bucket", "le=\"+Inf\"", cumulative);
+        sample(out, name + "_sum", null, getSumSeconds());
+        sample(out, name + "_count", null, cumulative);
+    }
+}
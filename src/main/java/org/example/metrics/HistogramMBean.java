@@ -0,0 +1,16 @@
+package org.example.metrics;
+
+/**
+ * JMX view of a {@link Histogram}; durations are in seconds and percentiles are bucket upper bounds.
+ */
+public interface HistogramMBean {
+    long getCount();
+
+    double getSumSeconds();
+
+    double getMeanSeconds();
+
+    double getP50Seconds();
+
+    double getP99Seconds();
+}
@@ -0,0 +1,68 @@
+package org.example.metrics;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Common part of the registry's metrics: a Prometheus name and help text, and at most one label,
+ * e.g. the format of an export.
+ */
+abstract class Metric {
+    final String name;
+    final String help;
+    final String labelName;
+    final String labelValue;
+
+    Metric(String name, String help, String labelName, String labelValue) {
+        this.name = name;
+        this.help = help;
+        this.labelName = labelName;
+        this.labelValue = labelValue;
+    }
+
+    abstract String type();
+
+    /**
+     * Appends this metric's samples, without the HELP and TYPE lines of its family.
+     */
+    abstract void writePrometheus(StringBuilder out);
+
+    ObjectName objectName() throws MalformedObjectNameException {
+        String objectName = "org.example.docgen:type=Metrics,name=" + name;
+        if (labelName != null) {
+            objectName += "," + labelName + "=" + ObjectName.quote(labelValue);
+        }
+        return new ObjectName(objectName);
+    }
+
+    /**
+     * Appends one sample line. {@code extraLabel} is a preformatted pair such as {@code le="0.5"}.
+     */
+    void sample(StringBuilder out, String sampleName, String extraLabel, double value) {
+        out.append(sampleName);
+        if (labelName != null || extraLabel != null) {
+            out.append('{');
+            if (labelName != null) {
+                out.append(labelName).append("=\"").append(escape(labelValue)).append('"');
+                if (extraLabel != null) {
+                    out.append(',');
+                }
+            }
+            if (extraLabel != null) {
+                out.append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds the process's counters and histograms. Each metric is registered as an MBean under
+ * {@code org.example.docgen:type=Metrics} when it is created, and the whole registry can be
+ * rendered in the Prometheus text format for a file or {@link PrometheusEndpoint}.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry(ManagementFactory.getPlatformMBeanServer());
+
+    private final MBeanServer mBeanServer;
+    // Keyed by name, then label value ("" when unlabelled), in creation order
+    private final Map<String, Map<String, Metric>> families = new LinkedHashMap<>();
+    private final Map<String, Metric> index = new ConcurrentHashMap<>();
+
+    /**
+     * @param mBeanServer server to register metrics with, or {@code null} for no JMX
+     */
+    public MetricsRegistry(MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    /**
+     * The registry the pipeline records into, see {@link PipelineMetrics}.
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    public Counter counter(String name, String help, String labelName, String labelValue) {
+        return (Counter) metric(name, labelValue, () -> new Counter(name, help, labelName, labelValue));
+    }
+
+    public Histogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+
+    public Histogram histogram(String name, String help, String labelName, String labelValue) {
+        return (Histogram) metric(name, labelValue, () -> new Histogram(name, help, labelName, labelValue));
+    }
+
+    private Metric metric(String name, String labelValue, Supplier<Metric> factory) {
+        String key = labelValue == null ? name : name + '\0' + labelValue;
+        Metric existing = index.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = index.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            Metric metric = factory.get();
+            families.computeIfAbsent(name, n -> new LinkedHashMap<>()).put(labelValue == null ? "" : labelValue, metric);
+            index.put(key, metric);
+            register(metric);
+            return metric;
+        }
+    }
+
+    private void register(Metric metric) {
+        if (mBeanServer == null) {
+            return;
+        }
+        try {
+            mBeanServer.registerMBean(metric, metric.objectName());
+        } catch (InstanceAlreadyExistsException e) {
+            // Another registry on this server owns the name; the metric still works without JMX
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metric " + metric.name + " with JMX", e);
+        }
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     */
+    public String toPrometheusText() {
+        List<List<Metric>> snapshot = new ArrayList<>();
+        synchronized (this) {
+            for (Map<String, Metric> family : families.values()) {
+                snapshot.add(new ArrayList<>(family.values()));
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (List<Metric> family : snapshot) {
+            Metric first = family.get(0);
+            out.append("# HELP ").append(first.name).append(' ').append(first.help).append('\n');
+            out.append("# TYPE ").append(first.name).append(' ').append(first.type()).append('\n');
+            for (Metric metric : family) {
+                metric.writePrometheus(out);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes {@link #toPrometheusText()} to {@code file}, replacing it atomically so a node
+     * exporter textfile collector never reads half a file.
+     */
+    public void writePrometheusFile(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(tmp, toPrometheusText(), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
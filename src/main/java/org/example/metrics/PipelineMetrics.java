@@ -0,0 +1,60 @@
+package org.example.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The metrics recorded by each stage of a documentation run, in the {@link MetricsRegistry#global()
+ * global registry}. Durations are histograms in seconds; token and event counts are counters.
+ */
+public final class PipelineMetrics {
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.global();
+    // Labelled metrics by label value, so lookups on the hot path build no registry keys
+    private static final Map<String, Counter> FILES_DOCUMENTED = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> EXPORTS = new ConcurrentHashMap<>();
+
+    public static final Histogram REPOSITORY_LISTING = REGISTRY.histogram("docgen_github_listing_seconds",
+            "Time to resolve the default branch and list a repository's files");
+    public static final Histogram BLOB_FETCH = REGISTRY.histogram("docgen_github_blob_fetch_seconds",
+            "Time to download one blob from GitHub");
+    public static final Counter BLOB_CACHE_HITS = REGISTRY.counter("docgen_github_blob_cache_hits_total",
+            "Blobs read from the local blob cache instead of GitHub");
+
+    public static final Histogram LLM_QUEUE_WAIT = REGISTRY.histogram("docgen_llm_queue_wait_seconds",
+            "Time a request waited for one of the concurrent request slots");
+    public static final Histogram LLM_RATE_LIMIT_WAIT = REGISTRY.histogram("docgen_llm_rate_limit_wait_seconds",
+            "Time a request attempt waited for the provider rate limiter");
+    public static final Histogram LLM_REQUEST = REGISTRY.histogram("docgen_llm_request_seconds",
+            "Time from sending a completion request until its last token, including retries");
+    public static final Counter LLM_REQUESTS = REGISTRY.counter("docgen_llm_requests_total",
+            "HTTP requests sent to the LLM provider, retries included");
+    public static final Counter LLM_THROTTLED = REGISTRY.counter("docgen_llm_throttled_total",
+            "Responses with status 429 or 503");
+    public static final Counter LLM_RETRIES = REGISTRY.counter("docgen_llm_retries_total",
+            "Requests sent again after a throttling or transient server error");
+    public static final Counter LLM_ERRORS = REGISTRY.counter("docgen_llm_errors_total",
+            "Completion requests that failed after all retries");
+    public static final Counter PROMPT_TOKENS = REGISTRY.counter("docgen_llm_prompt_tokens_total",
+            "Prompt tokens billed by the provider");
+    public static final Counter COMPLETION_TOKENS = REGISTRY.counter("docgen_llm_completion_tokens_total",
+            "Completion tokens billed by the provider");
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * Sections written, by where they came from: generated, batched, cached, resumed or partial.
+     */
+    public static Counter filesDocumented(String source) {
+        return FILES_DOCUMENTED.computeIfAbsent(source, label -> REGISTRY.counter("docgen_files_documented_total",
+                "Sections written to documents", "source", label));
+    }
+
+    /**
+     * Duration of exports to one format.
+     */
+    public static Histogram export(String format) {
+        return EXPORTS.computeIfAbsent(format, label -> REGISTRY.histogram("docgen_export_seconds",
+                "Time to export a document", "format", label));
+    }
+}
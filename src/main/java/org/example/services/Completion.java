@@ -0,0 +1,21 @@
+package org.example.services;
+
+import java.time.Duration;
+
+/**
+ * Documentation returned by the LLM together with what it cost. Token counts are {@code -1} when
+ * the provider did not report usage.
+ *
+ * @param finishReason why generation stopped as reported by the provider (e.g. {@code "stop"} or
+ *                     {@code "length"}), or {@code null} if unknown
+ */
+public record Completion(String content, int promptTokens, int completionTokens, Duration latency,
+                         String finishReason) {
+
+    /**
+     * Whether the response was cut off at the {@code max_tokens} limit.
+     */
+    public boolean truncated() {
+        return "length".equals(finishReason);
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.services;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes which source files changed between two commits of a GitHub repository, using a bare
+ * JGit mirror kept under {@code ~/.docgen_diff_cache}. Mirrors are cloned from the URL the
+ * {@link GitHubService}'s API reports, so they come from the server that service is configured for.
+ */
+public class GitDiffService {
+
+    /**
+     * Files added or modified since the base commit (path to content) with their blob SHAs, files
+     * deleted since it, and the commit the diff was taken against.
+     */
+    public record ChangeSet(String headSha, Map<String, String> changedFiles, Map<String, String> blobShas,
+                            Set<String> deletedFiles) {
+    }
+
+    private final GitHubService gitHubService;
+    private final File cacheRoot;
+
+    public GitDiffService(GitHubService gitHubService) {
+        this(gitHubService, new File(System.getProperty("user.home"), ".docgen_diff_cache"));
+    }
+
+    public GitDiffService(GitHubService gitHubService, File cacheRoot) {
+        this.gitHubService = gitHubService;
+        this.cacheRoot = cacheRoot;
+    }
+
+    /**
+     * Brings the local mirror up to date and diffs {@code baseSha} against the remote HEAD.
+     *
+     * @param repoUrl GitHub repo URL (e.g. https://github.com/owner/repo)
+     * @param baseSha last commit that was documented
+     */
+    public ChangeSet diffSince(String repoUrl, String baseSha) throws IOException {
+        try (Git git = openMirror(repoUrl)) {
+            Repository repository = git.getRepository();
+
+            ObjectId baseId = repository.resolve(baseSha);
+            ObjectId headId = repository.resolve(Constants.HEAD);
+            if (baseId == null) {
+                throw new IllegalArgumentException("Unknown commit: " + baseSha);
+            }
+            if (headId == null) {
+                throw new IOException("Repository has no HEAD: " + repoUrl);
+            }
+
+            Map<String, String> changed = new HashMap<>();
+            Map<String, String> blobShas = new HashMap<>();
+            Set<String> deleted = new HashSet<>();
+
+            try (RevWalk walk = new RevWalk(repository);
+                 DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                RevCommit base = walk.parseCommit(baseId);
+                RevCommit head = walk.parseCommit(headId);
+                formatter.setRepository(repository);
+
+                List<DiffEntry> entries = formatter.scan(base.getTree(), head.getTree());
+                for (DiffEntry entry : entries) {
+                    switch (entry.getChangeType()) {
+                        case ADD, MODIFY, COPY -> {
+                            if (GitHubService.hasAllowedExtension(entry.getNewPath())) {
+                                changed.put(entry.getNewPath(), readBlob(repository, entry.getNewId().toObjectId()));
+                                blobShas.put(entry.getNewPath(), entry.getNewId().name());
+                            }
+                        }
+                        case DELETE -> deleted.add(entry.getOldPath());
+                        case RENAME -> {
+                            deleted.add(entry.getOldPath());
+                            if (GitHubService.hasAllowedExtension(entry.getNewPath())) {
+                                changed.put(entry.getNewPath(), readBlob(repository, entry.getNewId().toObjectId()));
+                                blobShas.put(entry.getNewPath(), entry.getNewId().name());
+                            }
+                        }
+                    }
+                }
+            }
+
+            return new ChangeSet(headId.getName(), changed, blobShas, deleted);
+        }
+    }
+
+    /**
+     * Opens the bare mirror for the repository, cloning it on first use and fetching afterwards.
+     */
+    private Git openMirror(String repoUrl) throws IOException {
+        String cloneUrl = gitHubService.getCloneUrl(repoUrl);
+        // Keyed by clone URL, so repositories of the same name on different servers never share a mirror
+        File mirrorDir = new File(cacheRoot, cloneUrl.replaceAll("^\\w+://", "").replaceAll("[^A-Za-z0-9._-]", "_"));
+
+        String token = System.getenv("GITHUB_TOKEN");
+        UsernamePasswordCredentialsProvider credentials =
+                token != null ? new UsernamePasswordCredentialsProvider(token, "") : null;
+
+        try {
+            if (new File(mirrorDir, "HEAD").exists()) {
+                Git git = Git.open(mirrorDir);
+                git.fetch().setCredentialsProvider(credentials).call();
+                return git;
+            }
+            return Git.cloneRepository()
+                    .setURI(cloneUrl)
+                    .setDirectory(mirrorDir)
+                    .setMirror(true)
+                    .setCredentialsProvider(credentials)
+                    .call();
+        } catch (GitAPIException e) {
+            throw new IOException("Failed to update local mirror of " + repoUrl, e);
+        }
+    }
+
+    private static String readBlob(Repository repository, ObjectId blobId) throws IOException {
+        return new String(repository.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+    }
+}
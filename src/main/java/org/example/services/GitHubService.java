@@ -1,36 +1,112 @@
 package org.example.services;
 
+import org.example.metrics.PipelineMetrics;
 import org.kohsuke.github.*;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class GitHubService {
+    public static final String DEFAULT_API_URL = "https://api.github.com";
+    public static final int DEFAULT_FETCH_CONCURRENCY = 8;
+
+    // Requests left in the primary quota below which the client waits for the reset
+    private static final int RATE_LIMIT_HEADROOM = 10;
+    private static final long DEFAULT_SECONDARY_LIMIT_WAIT_MILLIS = 60_000;
+
     private final GitHub github;
+    private final Path blobCacheDir;
+    private final int fetchConcurrency;
 
     // Allowed source code file extensions
     private static final Set<String> ALLOWED_EXTENSIONS = Set.of(
             ".java", ".cpp", ".cs", ".vb", ".py"
     );
 
+    /**
+     * A source file in a repository snapshot, identified by its immutable blob SHA.
+     */
+    public record SourceFile(String path, String blobSha, long size) {
+    }
+
+    /**
+     * All allowed source files of a repository as of one commit.
+     */
+    public record RepositorySnapshot(GHRepository repository, String commitSha, List<SourceFile> files) {
+    }
+
     /**
      * Creates a GitHub client, connect anonymously by default.
      * You can modify to use authentication token if needed.
      */
     public GitHubService() {
+        this(DEFAULT_API_URL, Path.of(System.getProperty("user.home"), ".docgen_blob_cache"), DEFAULT_FETCH_CONCURRENCY);
+    }
+
+    /**
+     * Creates a GitHub client against {@code apiUrl} (e.g. a local stub of the REST API) that
+     * downloads up to {@code fetchConcurrency} blobs at once and caches them under
+     * {@code blobCacheDir}, or not at all when it is {@code null}.
+     */
+    public GitHubService(String apiUrl, Path blobCacheDir, int fetchConcurrency) {
+        if (fetchConcurrency <= 0) {
+            throw new IllegalArgumentException("Fetch concurrency must be positive");
+        }
         try {
             this.github = new GitHubBuilder()
+                    .withEndpoint(apiUrl)
                     .withOAuthToken(System.getenv("GITHUB_TOKEN")) // or hardcoded for test
+                    .withRateLimitChecker(new RateLimitChecker.LiteralValue(RATE_LIMIT_HEADROOM))
+                    .withAbuseLimitHandler(WAIT_FOR_RETRY_AFTER)
                     .build();
         } catch (IOException e) {
             throw new RuntimeException("Failed to connect to GitHub", e);
         }
+        this.blobCacheDir = blobCacheDir;
+        this.fetchConcurrency = fetchConcurrency;
     }
 
+    /**
+     * Sleeps for the Retry-After period GitHub sends with secondary rate limit errors
+     * (or a jittered default) and lets the client retry the request.
+     */
+    private static final GitHubAbuseLimitHandler WAIT_FOR_RETRY_AFTER = new GitHubAbuseLimitHandler() {
+        @Override
+        public void onError(GitHubConnectorResponse response) throws IOException {
+            long waitMillis = DEFAULT_SECONDARY_LIMIT_WAIT_MILLIS;
+            String retryAfter = response.header("Retry-After");
+            if (retryAfter != null) {
+                try {
+                    waitMillis = Long.parseLong(retryAfter.trim()) * 1000;
+                } catch (NumberFormatException ignored) {
+                    // Keep the default wait
+                }
+            }
+            try {
+                Thread.sleep(waitMillis + ThreadLocalRandom.current().nextLong(1000));
+            } catch (InterruptedException e) {
+                throw (InterruptedIOException) new InterruptedIOException("Interrupted waiting for GitHub rate limit").initCause(e);
+            }
+        }
+    };
+
     /**
      * Fetches the content of all allowed files from the given GitHub repository URL.
      *
@@ -39,6 +115,92 @@ public class GitHubService {
      * @throws IOException on IO or GitHub API errors
      */
     public Map<String, String> getRepositoryFilesContent(String repoUrl) throws IOException {
+        return getFilesContent(listRepository(repoUrl));
+    }
+
+    /**
+     * Downloads the content of every file in the snapshot, with at most the configured number
+     * of blob requests in flight.
+     *
+     * @return Map where key = file path, value = file content as string
+     */
+    public Map<String, String> getFilesContent(RepositorySnapshot snapshot) throws IOException {
+        Map<String, String> filesContent = new ConcurrentHashMap<>();
+        Semaphore permits = new Semaphore(fetchConcurrency);
+        List<Future<?>> futures = new ArrayList<>(snapshot.files().size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SourceFile file : snapshot.files()) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        filesContent.put(file.path(), getBlobContent(snapshot.repository(), file.blobSha()));
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    if (e.getCause() instanceof IOException io) {
+                        throw io;
+                    }
+                    throw new IOException("Failed to fetch repository files", e.getCause());
+                } catch (InterruptedException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while fetching repository files");
+                }
+            }
+        }
+
+        return filesContent;
+    }
+
+    /**
+     * Resolves the default branch to a commit once and lists its allowed files with a single
+     * recursive tree request, so every later read sees the same snapshot.
+     */
+    public RepositorySnapshot listRepository(String repoUrl) throws IOException {
+        long start = System.nanoTime();
+        GHRepository repository = github.getRepository(repositoryName(repoUrl));
+        String commitSha = repository.getBranch(repository.getDefaultBranch()).getSHA1();
+
+        List<SourceFile> files = new ArrayList<>();
+        GHTree tree = repository.getTreeRecursive(commitSha, 1);
+
+        if (tree.isTruncated()) {
+            // Tree too large for one response; walk directories pinned to the same commit instead
+            listContentRecursive(repository, "", commitSha, files);
+        } else {
+            for (GHTreeEntry entry : tree.getTree()) {
+                if ("blob".equals(entry.getType()) && hasAllowedExtension(entry.getPath())) {
+                    files.add(new SourceFile(entry.getPath(), entry.getSha(), entry.getSize()));
+                }
+            }
+        }
+
+        PipelineMetrics.REPOSITORY_LISTING.recordSince(start);
+        return new RepositorySnapshot(repository, commitSha, files);
+    }
+
+    /**
+     * Git URL the API reports for cloning the repository, so clones come from the same server as
+     * the API, e.g. a GitHub Enterprise instance.
+     */
+    public String getCloneUrl(String repoUrl) throws IOException {
+        return github.getRepository(repositoryName(repoUrl)).getHttpTransportUrl();
+    }
+
+    /**
+     * {@code owner/repo} of a GitHub repo URL (e.g. https://github.com/owner/repo).
+     */
+    private static String repositoryName(String repoUrl) {
         if (repoUrl == null || !repoUrl.contains("github.com")) {
             throw new IllegalArgumentException("Invalid GitHub repo URL");
         }
@@ -47,27 +209,44 @@ public class GitHubService {
         if (parts.length < 5) {
             throw new IllegalArgumentException("Invalid GitHub repo URL format");
         }
+        return parts[3] + "/" + parts[4];
+    }
 
-        String owner = parts[3];
-        String repo = parts[4];
-
-        GHRepository repository = github.getRepository(owner + "/" + repo);
-        Map<String, String> filesContent = new HashMap<>();
+    /**
+     * Reads a blob by SHA as a UTF-8 string. Blobs are immutable, so cached copies never expire.
+     */
+    public String getBlobContent(GHRepository repository, String blobSha) throws IOException {
+        Path cached = blobCacheDir != null ? blobCacheDir.resolve(blobSha) : null;
+        if (cached != null && Files.exists(cached)) {
+            PipelineMetrics.BLOB_CACHE_HITS.increment();
+            return new String(Files.readAllBytes(cached), StandardCharsets.UTF_8);
+        }
 
-        fetchContentRecursive(repository, "", filesContent);
+        long start = System.nanoTime();
+        byte[] bytes;
+        try (InputStream inputStream = repository.getBlob(blobSha).read()) {
+            bytes = inputStream.readAllBytes();
+        }
+        PipelineMetrics.BLOB_FETCH.recordSince(start);
 
-        return filesContent;
+        if (cached != null) {
+            Files.createDirectories(blobCacheDir);
+            Path tmp = Files.createTempFile(blobCacheDir, blobSha, ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     /**
-     * Recursively fetch files with allowed extensions and add to map.
+     * Recursively list files with allowed extensions at the given commit.
      */
-    private void fetchContentRecursive(GHRepository repo, String path, Map<String, String> filesContent) throws IOException {
-        for (GHContent item : repo.getDirectoryContent(path)) {
+    private void listContentRecursive(GHRepository repo, String path, String ref, List<SourceFile> files) throws IOException {
+        for (GHContent item : repo.getDirectoryContent(path, ref)) {
             if (item.isFile() && hasAllowedExtension(item.getName())) {
-                filesContent.put(item.getPath(), getFileContent(item));
+                files.add(new SourceFile(item.getPath(), item.getSha(), item.getSize()));
             } else if (item.isDirectory()) {
-                fetchContentRecursive(repo, item.getPath(), filesContent);
+                listContentRecursive(repo, item.getPath(), ref, files);
             }
         }
     }
@@ -75,16 +254,7 @@ public class GitHubService {
     /**
      * Checks if filename ends with any of the allowed extensions.
      */
-    private boolean hasAllowedExtension(String fileName) {
+    public static boolean hasAllowedExtension(String fileName) {
         return ALLOWED_EXTENSIONS.stream().anyMatch(fileName::endsWith);
     }
-
-    /**
-     * Reads file content as UTF-8 string.
-     */
-    private String getFileContent(GHContent file) throws IOException {
-        try (InputStream inputStream = file.read()) {
-            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-        }
-    }
 }
@@ -0,0 +1,52 @@
+package org.example.services;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * An OpenAI-compatible chat completions provider: Groq, OpenAI, or any self-hosted server that
+ * speaks the same API (vLLM, llama.cpp, Ollama, {@link StubLlmServer}). Requests go to
+ * {@code <baseUrl>/chat/completions}. The rate limits are only the starting point of the shared
+ * {@link RateLimiter}; providers that send {@code x-ratelimit-*} headers correct them on the first
+ * response.
+ */
+public record LlmProvider(String name, URI baseUrl, boolean requiresApiKey, int requestsPerMinute,
+                          int tokensPerMinute) {
+    public static final LlmProvider GROQ = new LlmProvider("Groq", URI.create("https://api.groq.com/openai/v1"),
+            true, RateLimiter.DEFAULT_REQUESTS_PER_MINUTE, RateLimiter.DEFAULT_TOKENS_PER_MINUTE);
+    public static final LlmProvider OPENAI = new LlmProvider("OpenAI", URI.create("https://api.openai.com/v1"),
+            true, 500, 30_000);
+
+    // Self-hosted servers usually have no quota; concurrency is what limits them
+    private static final int UNMETERED_REQUESTS_PER_MINUTE = 100_000;
+    private static final int UNMETERED_TOKENS_PER_MINUTE = 100_000_000;
+
+    private static final List<LlmProvider> KNOWN = List.of(GROQ, OPENAI);
+
+    /**
+     * The known provider at {@code baseUrl}, or an unmetered custom provider that needs no API key.
+     */
+    public static LlmProvider forBaseUrl(String baseUrl) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            return GROQ;
+        }
+        URI uri = URI.create(stripTrailingSlash(baseUrl.trim()));
+        for (LlmProvider provider : KNOWN) {
+            if (provider.baseUrl().equals(uri)) {
+                return provider;
+            }
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("Not an absolute http(s) URL: " + baseUrl);
+        }
+        return new LlmProvider(uri.getHost(), uri, false, UNMETERED_REQUESTS_PER_MINUTE, UNMETERED_TOKENS_PER_MINUTE);
+    }
+
+    public URI chatCompletionsEndpoint() {
+        return URI.create(baseUrl + "/chat/completions");
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
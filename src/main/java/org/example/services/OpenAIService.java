@@ -1,70 +1,632 @@
 package org.example.services;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.example.backend.Settings;
+import org.example.metrics.PipelineMetrics;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class OpenAIService {
-    private final ObjectMapper objectMapper;
-    private final HttpClient httpClient;
+    // One limiter per provider base URL, shared by every service talking to that provider
+    private static final Map<URI, RateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+    private static final int MAX_RETRIES = 5;
+    private static final Duration STREAM_IDLE_TIMEOUT = Duration.ofSeconds(30);
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "openai-stream-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Runs response handling only, which never blocks, so a few threads serve any number of requests in flight
+    private static final ExecutorService HTTP_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            Thread.ofPlatform().name("openai-http-", 1).daemon().factory());
+    // Shared so that requests to one provider multiplex over the same HTTP/2 connections
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(30))
+            .executor(HTTP_EXECUTOR)
+            .build();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectWriter REQUEST_WRITER = OBJECT_MAPPER.writer();
+    private static final JsonFactory RESPONSE_FACTORY = OBJECT_MAPPER.getFactory();
+
+    public static final String BATCH_FILE_MARKER = "=== FILE: ";
+    private static final String BATCH_MARKER_END = " ===";
+    // Marker line, tolerating Markdown emphasis or heading characters the model may wrap it in
+    private static final Pattern BATCH_MARKER_LINE = Pattern.compile("^[\\s#*`>]*=== FILE: (.+?) ===[\\s*`]*$");
+
+    public static final String SYSTEM_MESSAGE = "You are a documentation generator for source code. Your job is to generate rich, complete, Markdown-based documentation for the source code.";
+    // Serialized once and written raw into every request body
+    private static final String SYSTEM_MESSAGE_JSON = OBJECT_MAPPER.createObjectNode()
+            .put("role", "system")
+            .put("content", SYSTEM_MESSAGE)
+            .toString();
+
     private final Settings appSettings;
+    private final RateLimiter rateLimiter;
+    private final URI endpoint;
 
     public OpenAIService(Settings appSettings) {
+        this(appSettings, LlmProvider.forBaseUrl(appSettings.getBaseUrl()));
+    }
+
+    private OpenAIService(Settings appSettings, LlmProvider provider) {
+        this(appSettings, RATE_LIMITERS.computeIfAbsent(provider.baseUrl(),
+                        url -> new RateLimiter(provider.requestsPerMinute(), provider.tokensPerMinute())),
+                provider.chatCompletionsEndpoint());
+    }
+
+    /**
+     * Creates a service against a specific chat completions endpoint, e.g. a local stub server.
+     */
+    public OpenAIService(Settings appSettings, RateLimiter rateLimiter, URI endpoint) {
         this.appSettings = appSettings;
-        this.objectMapper = new ObjectMapper();
-        this.httpClient = HttpClient.newHttpClient();
+        this.rateLimiter = rateLimiter;
+        this.endpoint = endpoint;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
     }
 
     public String generateDocumentationForFile(String fileName, String fileContent, String customPrompt) throws IOException, InterruptedException {
-        String prompt;
-        if (customPrompt != null && !customPrompt.isBlank()) {
-            prompt = customPrompt + "\n\nFilename: " + fileName + "\n\nCode:\n" + fileContent;
-        } else {
-            prompt = "Generate detailed documentation for the following source code file: " + fileName + "\n\n" + fileContent;
+        return requestDocumentation(fileName, fileContent, customPrompt, null).content();
+    }
+
+    /**
+     * Streams the completion as server-sent events, passing each content delta to {@code onToken}
+     * as soon as it arrives. If the connection fails or stays idle for longer than
+     * {@link #STREAM_IDLE_TIMEOUT} mid-response, a {@link PartialResponseException} carries the
+     * text received so far.
+     */
+    public String generateDocumentationForFile(String fileName, String fileContent, String customPrompt,
+                                               Consumer<String> onToken) throws IOException, InterruptedException {
+        return requestDocumentation(fileName, fileContent, customPrompt, onToken).content();
+    }
+
+    /**
+     * Documents a file and reports token usage and latency alongside the text. Streams when
+     * {@code onToken} is not {@code null}, as {@link #generateDocumentationForFile(String, String, String, Consumer)}.
+     */
+    public Completion requestDocumentation(String fileName, String fileContent, String customPrompt,
+                                           Consumer<String> onToken) throws IOException, InterruptedException {
+        return requestCompletion(buildPrompt(fileName, fileContent, customPrompt), onToken);
+    }
+
+    /**
+     * Sends an already rendered user prompt, e.g. from {@link #buildChunkPrompt} or
+     * {@link #buildMergePrompt}. Streams when {@code onToken} is not {@code null}.
+     */
+    public Completion requestCompletion(String prompt, Consumer<String> onToken) throws IOException, InterruptedException {
+        CompletableFuture<Completion> completion = requestCompletionAsync(prompt, onToken);
+        try {
+            return completion.get();
+        } catch (InterruptedException e) {
+            completion.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Sends a prompt without blocking the calling thread. The future completes with the
+     * completion, or exceptionally with the {@link IOException} {@link #requestCompletion} would
+     * throw; waiting for the rate limiter and retries happen without holding a thread. When
+     * streaming, {@code onToken} is called on the HTTP client's threads. Cancelling the future
+     * aborts the request in flight.
+     */
+    public CompletableFuture<Completion> requestCompletionAsync(String prompt, Consumer<String> onToken) {
+        HttpRequest request;
+        try {
+            request = buildRequest(prompt, onToken != null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Call call = new Call(request, estimateTokens(prompt) + appSettings.getMaxTokens(), onToken);
+        call.attempt(0);
+        return call.result;
+    }
+
+    private HttpRequest buildRequest(String prompt, boolean stream) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(endpoint)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody(prompt, stream)));
+        // Self-hosted servers often run without authentication
+        if (appSettings.getApiKey() != null && !appSettings.getApiKey().isBlank()) {
+            builder.header("Authorization", "Bearer " + appSettings.getApiKey());
         }
+        return builder.build();
+    }
 
-        ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", appSettings.getModel()); // Use Groq-supported LLaMA 3 model
+    private byte[] requestBody(String prompt, boolean stream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(prompt.length() + SYSTEM_MESSAGE_JSON.length() + 256);
+        try (JsonGenerator json = REQUEST_WRITER.createGenerator(body)) {
+            json.writeStartObject();
+            json.writeStringField("model", appSettings.getModel());
+            json.writeArrayFieldStart("messages");
+            json.writeRawValue(SYSTEM_MESSAGE_JSON);
+            json.writeStartObject();
+            json.writeStringField("role", "user");
+            json.writeStringField("content", prompt);
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeNumberField("temperature", appSettings.getTemperature());
+            json.writeNumberField("max_tokens", appSettings.getMaxTokens());
+            if (stream) {
+                json.writeBooleanField("stream", true);
+            }
+            json.writeEndObject();
+        }
+        return body.toByteArray();
+    }
 
-        ArrayNode messages = requestBody.putArray("messages");
+    /**
+     * One chat completion request through the rate limiter and its retries while the provider
+     * reports 429/503 or a transient 500/502/504.
+     */
+    private final class Call {
+        private final HttpRequest request;
+        private final int reservedTokens;
+        private final Consumer<String> onToken;
+        private final long start = System.nanoTime();
+        private final CompletableFuture<Completion> result = new CompletableFuture<>();
+        // Rate limiter wait or HTTP exchange the call is currently waiting for
+        private volatile CompletableFuture<?> pending;
 
-        // You can optionally set a system message to guide behavior
-        ObjectNode systemMessage = objectMapper.createObjectNode();
-        systemMessage.put("role", "system");
-        systemMessage.put("content", "You are a documentation generator for source code. Your job is to generate rich, complete, Markdown-based documentation for the source code.");
-        messages.add(systemMessage);
+        Call(HttpRequest request, int reservedTokens, Consumer<String> onToken) {
+            this.request = request;
+            this.reservedTokens = reservedTokens;
+            this.onToken = onToken;
+            result.whenComplete((completion, error) -> {
+                CompletableFuture<?> current = pending;
+                if (result.isCancelled() && current != null) {
+                    current.cancel(true);
+                }
+            });
+        }
 
-        ObjectNode userMessage = objectMapper.createObjectNode();
-        userMessage.put("role", "user");
-        userMessage.put("content", prompt);
-        messages.add(userMessage);
+        void attempt(int attempt) {
+            if (result.isDone()) {
+                return;
+            }
+            if (attempt > 0) {
+                PipelineMetrics.LLM_RETRIES.increment();
+            }
+            long waitStart = System.nanoTime();
+            track(rateLimiter.acquireAsync(reservedTokens)).thenCompose(ignored -> {
+                PipelineMetrics.LLM_RATE_LIMIT_WAIT.recordSince(waitStart);
+                PipelineMetrics.LLM_REQUESTS.increment();
+                return track(HTTP_CLIENT.sendAsync(request, info -> subscriber(info, attempt)));
+            }).whenComplete((response, error) -> {
+                if (error != null) {
+                    fail(error);
+                } else if (response.statusCode() == 200) {
+                    result.complete(response.body());
+                } else {
+                    retry(response, attempt);
+                }
+            });
+        }
 
-        requestBody.put("temperature", appSettings.getTemperature());
-        requestBody.put("max_tokens", appSettings.getMaxTokens());
+        private <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+            pending = future;
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+            return future;
+        }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.groq.com/openai/v1/chat/completions"))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + appSettings.getApiKey())
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
-                .build();
+        /**
+         * Chooses how to read the response once its status and headers are in. Error bodies are
+         * discarded when the request is retried, and otherwise fail the exchange.
+         */
+        private HttpResponse.BodySubscriber<Completion> subscriber(HttpResponse.ResponseInfo info, int attempt) {
+            rateLimiter.update(info.headers());
+            int status = info.statusCode();
+            if (status == 200) {
+                return onToken != null
+                        ? new EventStreamSubscriber()
+                        : HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), this::parse);
+            }
+
+            boolean throttled = status == 429 || status == 503;
+            if (throttled) {
+                PipelineMetrics.LLM_THROTTLED.increment();
+            }
+            boolean serverError = status == 500 || status == 502 || status == 504;
+            if ((throttled || serverError) && attempt < MAX_RETRIES) {
+                return HttpResponse.BodySubscribers.replacing(null);
+            }
+            PipelineMetrics.LLM_ERRORS.increment();
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), body -> {
+                throw new UncheckedIOException(new IOException("LLaMA API request failed with status code: " + status +
+                        "\nResponse: " + body));
+            });
+        }
+
+        private void retry(HttpResponse<Completion> response, int attempt) {
+            int status = response.statusCode();
+            if (status == 429 || status == 503) {
+                // Hold back every caller sharing this limiter, not just this one
+                Duration delay = RateLimiter.retryAfter(response.headers());
+                rateLimiter.pause(delay != null ? delay : rateLimiter.backoff(attempt));
+                attempt(attempt + 1);
+            } else {
+                CompletableFuture.delayedExecutor(rateLimiter.backoff(attempt).toMillis(), TimeUnit.MILLISECONDS, HTTP_EXECUTOR)
+                        .execute(() -> attempt(attempt + 1));
+            }
+        }
+
+        private void fail(Throwable error) {
+            while ((error instanceof CompletionException || error instanceof UncheckedIOException)
+                    && error.getCause() != null) {
+                error = error.getCause();
+            }
+            result.completeExceptionally(error);
+        }
+
+        private Completion parse(byte[] body) {
+            StringBuilder content = new StringBuilder();
+            ResponseFields fields = new ResponseFields();
+            try (JsonParser parser = RESPONSE_FACTORY.createParser(body)) {
+                readResponse(parser, content::append, fields);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return complete(content.toString().trim(), fields);
+        }
+
+        /**
+         * Returns unused reserved tokens to the limiter when the response reports actual usage,
+         * and records the request's metrics.
+         */
+        private Completion complete(String content, ResponseFields fields) {
+            if (fields.totalTokens >= 0) {
+                rateLimiter.settle(reservedTokens, fields.totalTokens);
+            }
+            Duration latency = Duration.ofNanos(System.nanoTime() - start);
+            PipelineMetrics.LLM_REQUEST.record(latency.toNanos());
+            PipelineMetrics.PROMPT_TOKENS.add(Math.max(0, fields.promptTokens));
+            PipelineMetrics.COMPLETION_TOKENS.add(Math.max(0, fields.completionTokens));
+            return new Completion(content, fields.promptTokens, fields.completionTokens, latency, fields.finishReason);
+        }
+
+        /**
+         * Reads a server-sent event stream line by line as it arrives, passing each content delta
+         * to {@code onToken}. The completion is available as soon as {@code [DONE]} is read; if
+         * the stream breaks or stays idle for longer than {@link #STREAM_IDLE_TIMEOUT} before
+         * that, it fails with a {@link PartialResponseException}.
+         */
+        private final class EventStreamSubscriber implements HttpResponse.BodySubscriber<Completion> {
+            private final CompletableFuture<Completion> body = new CompletableFuture<>();
+            private final StringBuilder content = new StringBuilder();
+            private final ResponseFields fields = new ResponseFields();
+            private final Consumer<String> delta = text -> {
+                if (!text.isEmpty()) {
+                    content.append(text);
+                    onToken.accept(text);
+                }
+            };
+            private final HttpResponse.BodySubscriber<Void> lines = HttpResponse.BodySubscribers.fromLineSubscriber(
+                    new Flow.Subscriber<String>() {
+                        @Override
+                        public void onSubscribe(Flow.Subscription subscription) {
+                            subscription.request(Long.MAX_VALUE);
+                        }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                        @Override
+                        public void onNext(String line) {
+                            line(line);
+                        }
 
-        if (response.statusCode() != 200) {
-            throw new IOException("LLaMA API request failed with status code: " + response.statusCode() +
-                    "\nResponse: " + response.body());
+                        @Override
+                        public void onError(Throwable error) {
+                            fail(error);
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            fail(new IOException("Stream ended without [DONE]"));
+                        }
+                    });
+            private volatile long lastActivity = System.nanoTime();
+            private Flow.Subscription subscription;
+            private ScheduledFuture<?> watchdog;
+
+            @Override
+            public CompletionStage<Completion> getBody() {
+                return body;
+            }
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                watchdog = WATCHDOG.scheduleAtFixedRate(() -> {
+                    if (System.nanoTime() - lastActivity > STREAM_IDLE_TIMEOUT.toNanos()) {
+                        fail(new IOException("No data received for " + STREAM_IDLE_TIMEOUT.toSeconds() + " seconds"));
+                        subscription.cancel();
+                    }
+                }, 1, 1, TimeUnit.SECONDS);
+                lines.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(List<ByteBuffer> item) {
+                lastActivity = System.nanoTime();
+                lines.onNext(item);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                lines.onError(error);
+            }
+
+            @Override
+            public void onComplete() {
+                lines.onComplete();
+            }
+
+            private synchronized void line(String line) {
+                if (body.isDone() || !line.startsWith("data:")) {
+                    return;
+                }
+                String data = line.substring(5).trim();
+                if (data.equals("[DONE]")) {
+                    watchdog.cancel(false);
+                    body.complete(complete(content.toString().trim(), fields));
+                    return;
+                }
+                try (JsonParser parser = RESPONSE_FACTORY.createParser(data)) {
+                    readResponse(parser, delta, fields);
+                } catch (IOException e) {
+                    fail(e);
+                    subscription.cancel();
+                }
+            }
+
+            private synchronized void fail(Throwable error) {
+                if (body.isDone()) {
+                    return;
+                }
+                watchdog.cancel(false);
+                body.completeExceptionally(new PartialResponseException("Streaming response interrupted: " + error.getMessage(),
+                        content.toString().trim(), error));
+            }
+        }
+    }
+
+    /**
+     * What a response or streamed chunk reports besides its content. Token counts are {@code -1}
+     * until read.
+     */
+    private static final class ResponseFields {
+        private String finishReason;
+        private int promptTokens = -1;
+        private int completionTokens = -1;
+        private int totalTokens = -1;
+    }
+
+    /**
+     * Reads a chat completion, or one chunk of a streamed one, token by token without building a
+     * tree. The first choice's message or delta content goes to {@code content}; its finish reason
+     * and the usage, which Groq reports under {@code x_groq} when streaming, go to {@code fields}.
+     */
+    private static void readResponse(JsonParser parser, Consumer<String> content, ResponseFields fields) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object in the response");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("choices") && value == JsonToken.START_ARRAY) {
+                boolean first = true;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                        readChoice(parser, content, fields);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    first = false;
+                }
+            } else if (field.equals("usage") && value == JsonToken.START_OBJECT) {
+                readUsage(parser, fields);
+            } else if (field.equals("x_groq") && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String groqField = parser.currentName();
+                    if (parser.nextToken() == JsonToken.START_OBJECT && groqField.equals("usage")) {
+                        readUsage(parser, fields);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readChoice(JsonParser parser, Consumer<String> content, ResponseFields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ((field.equals("message") || field.equals("delta")) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.currentName();
+                    if (parser.nextToken() == JsonToken.VALUE_STRING && messageField.equals("content")) {
+                        content.accept(parser.getText());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (field.equals("finish_reason") && value == JsonToken.VALUE_STRING) {
+                fields.finishReason = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readUsage(JsonParser parser, ResponseFields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "prompt_tokens" -> fields.promptTokens = parser.getIntValue();
+                case "completion_tokens" -> fields.completionTokens = parser.getIntValue();
+                case "total_tokens" -> fields.totalTokens = parser.getIntValue();
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders the user prompt sent for a file, using the custom prompt when one is given.
+     */
+    public String buildPrompt(String fileName, String fileContent, String customPrompt) {
+        if (customPrompt != null && !customPrompt.isBlank()) {
+            return customPrompt + "\n\nFilename: " + fileName + "\n\nCode:\n" + fileContent;
         }
+        return "Generate detailed documentation for the following source code file: " + fileName + "\n\n" + fileContent;
+    }
+
+    /**
+     * Renders the prompt for one part of a file that is too large to document in one request.
+     */
+    public String buildChunkPrompt(String fileName, String chunk, int part, int parts, String customPrompt) {
+        String instructions = customPrompt != null && !customPrompt.isBlank()
+                ? customPrompt
+                : "Generate detailed documentation for the following source code.";
+        return instructions + "\n\nThis is part " + part + " of " + parts + " of the file " + fileName
+                + ". Document only the code in this part; the parts are merged afterwards."
+                + "\n\nCode:\n" + chunk;
+    }
+
+    /**
+     * Renders the prompt that merges the documentation of consecutive parts of a file into one
+     * document.
+     */
+    public String buildMergePrompt(String fileName, List<String> partialDocs, String customPrompt) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("The documentation for the source code file ").append(fileName)
+                .append(" was generated in ").append(partialDocs.size())
+                .append(" parts, given below in file order. Merge them into a single coherent Markdown document:")
+                .append(" remove repeated introductions, keep every documented class, function and detail,")
+                .append(" and use one consistent heading structure.");
+        if (customPrompt != null && !customPrompt.isBlank()) {
+            prompt.append(" Follow these instructions for the result:\n").append(customPrompt);
+        }
+        for (int i = 0; i < partialDocs.size(); i++) {
+            prompt.append("\n\n=== Part ").append(i + 1).append(" ===\n\n").append(partialDocs.get(i));
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Renders one prompt documenting several small files at once. The model is asked to start each
+     * file's documentation with a {@link #BATCH_FILE_MARKER} line, which
+     * {@link #splitBatchResponse} uses to split the answer again.
+     */
+    public String buildBatchPrompt(Map<String, String> files, String customPrompt) {
+        StringBuilder prompt = new StringBuilder();
+        if (customPrompt != null && !customPrompt.isBlank()) {
+            prompt.append(customPrompt).append("\n\nApply these instructions to each of the following source code files.");
+        } else {
+            prompt.append("Generate detailed documentation for each of the following source code files.");
+        }
+        prompt.append(" Document every file separately. Begin the documentation of each file with a line containing")
+                .append(" exactly ").append(BATCH_FILE_MARKER).append("<path>").append(BATCH_MARKER_END)
+                .append(" using the path given below, and do not write such lines anywhere else.");
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            prompt.append("\n\n").append(BATCH_FILE_MARKER).append(file.getKey()).append(BATCH_MARKER_END)
+                    .append("\n").append(file.getValue());
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Splits the answer to a {@link #buildBatchPrompt batch prompt} into documentation per file.
+     * Files the model skipped, or whose section is empty, are missing from the result.
+     */
+    public static Map<String, String> splitBatchResponse(String response, Collection<String> fileNames) {
+        Map<String, StringBuilder> sections = new LinkedHashMap<>();
+        StringBuilder current = null;
+        for (String line : response.split("\n", -1)) {
+            Matcher marker = BATCH_MARKER_LINE.matcher(line);
+            if (marker.matches()) {
+                String fileName = marker.group(1).trim();
+                if (fileNames.contains(fileName) && !sections.containsKey(fileName)) {
+                    current = new StringBuilder();
+                    sections.put(fileName, current);
+                    continue;
+                }
+            }
+            if (current != null) {
+                current.append(line).append('\n');
+            }
+        }
+
+        Map<String, String> documentation = new LinkedHashMap<>();
+        sections.forEach((fileName, section) -> {
+            if (!section.toString().isBlank()) {
+                documentation.put(fileName, section.toString().strip());
+            }
+        });
+        return documentation;
+    }
 
-        JsonNode responseJson = objectMapper.readTree(response.body());
-        return responseJson.path("choices").get(0).path("message").path("content").asText().trim();
+    /**
+     * Rough prompt size in tokens (about four characters per token) used for rate limiting and
+     * chunking.
+     */
+    public static int estimateTokens(String text) {
+        return text.length() / 4 + 1;
     }
 }
@@ -0,0 +1,20 @@
+package org.example.services;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a streamed completion stops before the provider finished it. Carries whatever
+ * content had arrived so callers can keep it instead of discarding the whole response.
+ */
+public class PartialResponseException extends IOException {
+    private final String partialContent;
+
+    public PartialResponseException(String message, String partialContent, Throwable cause) {
+        super(message, cause);
+        this.partialContent = partialContent;
+    }
+
+    public String getPartialContent() {
+        return partialContent;
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.services;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Token-bucket limiter tracking requests per minute and tokens per minute for an LLM provider.
+ * The buckets start from the configured defaults and are corrected from the provider's
+ * {@code x-ratelimit-*} and {@code Retry-After} response headers, so one instance shared by every
+ * caller keeps the whole process at the real quota ceiling.
+ * <p>
+ * Only the token limit is taken as a per-minute quota. The window of
+ * {@code x-ratelimit-limit-requests} depends on the provider (Groq reports requests per day, e.g.
+ * 14400, OpenAI requests per minute), so the request rate stays as configured and the request
+ * headers only stop callers when the remaining quota runs out.
+ */
+public class RateLimiter {
+    public static final int DEFAULT_REQUESTS_PER_MINUTE = 30;
+    public static final int DEFAULT_TOKENS_PER_MINUTE = 6000;
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final double requestCapacity;
+    private double availableRequests;
+    private double tokenCapacity;
+    private double availableTokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public RateLimiter() {
+        this(DEFAULT_REQUESTS_PER_MINUTE, DEFAULT_TOKENS_PER_MINUTE);
+    }
+
+    public RateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        if (requestsPerMinute <= 0 || tokensPerMinute <= 0) {
+            throw new IllegalArgumentException("Rate limits must be positive");
+        }
+        this.requestCapacity = requestsPerMinute;
+        this.availableRequests = requestsPerMinute;
+        this.tokenCapacity = tokensPerMinute;
+        this.availableTokens = tokensPerMinute;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Blocks until one request and {@code estimatedTokens} tokens are available, then reserves them.
+     * Estimates larger than the bucket are clamped so an oversized request still eventually runs.
+     */
+    public void acquire(int estimatedTokens) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryReserve(estimatedTokens)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Like {@link #acquire(int)}, but completes the returned future once the reservation is made
+     * instead of blocking the calling thread.
+     */
+    public CompletableFuture<Void> acquireAsync(int estimatedTokens) {
+        long waitNanos = tryReserve(estimatedTokens);
+        if (waitNanos == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS))
+                .thenCompose(ignored -> acquireAsync(estimatedTokens));
+    }
+
+    /**
+     * Reserves the request and tokens if they are available and returns 0, or else returns how
+     * long to wait before trying again.
+     */
+    private synchronized long tryReserve(int estimatedTokens) {
+        long now = System.nanoTime();
+        refill(now);
+        double tokens = Math.min(estimatedTokens, tokenCapacity);
+
+        long waitNanos;
+        if (now - pausedUntilNanos < 0) {
+            waitNanos = pausedUntilNanos - now;
+        } else if (availableRequests >= 1 && availableTokens >= tokens) {
+            availableRequests -= 1;
+            availableTokens -= tokens;
+            return 0;
+        } else {
+            double requestWait = (1 - availableRequests) * MINUTE_NANOS / requestCapacity;
+            double tokenWait = (tokens - availableTokens) * MINUTE_NANOS / tokenCapacity;
+            waitNanos = (long) Math.max(requestWait, tokenWait);
+        }
+        return Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Current request quota per minute, as configured or last reported by the provider.
+     */
+    public synchronized double getRequestsPerMinute() {
+        return requestCapacity;
+    }
+
+    /**
+     * Current token quota per minute, as configured or last reported by the provider.
+     */
+    public synchronized double getTokensPerMinute() {
+        return tokenCapacity;
+    }
+
+    /**
+     * Returns the difference between a reservation and the tokens the provider actually billed.
+     */
+    public synchronized void settle(int reservedTokens, int actualTokens) {
+        availableTokens = Math.min(tokenCapacity, availableTokens + reservedTokens - actualTokens);
+    }
+
+    /**
+     * Stops every caller from acquiring until {@code delay} has elapsed.
+     */
+    public synchronized void pause(Duration delay) {
+        long until = System.nanoTime() + delay.toNanos();
+        if (until - pausedUntilNanos > 0) {
+            pausedUntilNanos = until;
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter for the given (zero-based) retry attempt.
+     */
+    public Duration backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    /**
+     * Adjusts both buckets from the provider's rate limit headers. Missing headers are ignored.
+     */
+    public synchronized void update(HttpHeaders headers) {
+        long now = System.nanoTime();
+        refill(now);
+
+        headers.firstValue("x-ratelimit-limit-tokens").flatMap(RateLimiter::parseNumber)
+                .ifPresent(limit -> tokenCapacity = Math.max(1, limit));
+
+        headers.firstValue("x-ratelimit-remaining-requests").flatMap(RateLimiter::parseNumber)
+                .ifPresent(remaining -> availableRequests = Math.min(availableRequests, remaining));
+        headers.firstValue("x-ratelimit-remaining-tokens").flatMap(RateLimiter::parseNumber)
+                .ifPresent(remaining -> availableTokens = Math.min(availableTokens, remaining));
+
+        if (availableRequests < 1) {
+            headers.firstValue("x-ratelimit-reset-requests").map(RateLimiter::parseDuration).ifPresent(this::pause);
+        }
+        headers.firstValue("retry-after").map(RateLimiter::parseRetryAfter).ifPresent(this::pause);
+    }
+
+    /**
+     * Reads the delay requested by a 429/503 response, if the provider sent one.
+     */
+    public static Duration retryAfter(HttpHeaders headers) {
+        return headers.firstValue("retry-after").map(RateLimiter::parseRetryAfter).orElse(null);
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        availableRequests = Math.min(requestCapacity, availableRequests + elapsed * requestCapacity / MINUTE_NANOS);
+        availableTokens = Math.min(tokenCapacity, availableTokens + elapsed * tokenCapacity / MINUTE_NANOS);
+        lastRefillNanos = now;
+    }
+
+    private static Optional<Double> parseNumber(String value) {
+        try {
+            return Optional.of(Double.parseDouble(value.trim()));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Duration parseRetryAfter(String value) {
+        return parseNumber(value)
+                .map(seconds -> Duration.ofMillis((long) (seconds * 1000)))
+                .orElseGet(() -> parseDuration(value));
+    }
+
+    /**
+     * Parses reset durations such as {@code 20ms}, {@code 7.66s} or {@code 2m59.56s}.
+     */
+    static Duration parseDuration(String value) {
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        while (matcher.find()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h" -> millis += amount * 3_600_000;
+                case "m" -> millis += amount * 60_000;
+                case "s" -> millis += amount * 1000;
+                default -> millis += amount;
+            }
+        }
+        return Duration.ofMillis((long) Math.ceil(millis));
+    }
+}
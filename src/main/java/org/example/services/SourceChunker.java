@@ -0,0 +1,192 @@
+package org.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits source files that are too large for a single prompt into chunks within a token budget.
+ * Cuts are placed at the end of a class or method where the language allows it, so each chunk
+ * can be documented on its own.
+ */
+public class SourceChunker {
+    // Boundary strengths: lower is a better place to cut
+    private static final int TOP_LEVEL = 0;
+    private static final int MEMBER = 1;
+    private static final int BLANK_LINE = 2;
+    private static final int NESTED = 3;
+    private static final int NONE = -1;
+
+    private static final Pattern PYTHON_DEFINITION = Pattern.compile("^(\\s*)(?:@|(?:async\\s+)?def\\s|class\\s)");
+    private static final Pattern VB_TYPE_END = Pattern.compile(
+            "(?i)^\\s*End\\s+(?:Class|Module|Structure|Interface|Namespace|Enum)\\b");
+    private static final Pattern VB_MEMBER_END = Pattern.compile("(?i)^\\s*End\\s+(?:Sub|Function|Property|Operator)\\b");
+
+    private SourceChunker() {
+    }
+
+    /**
+     * Splits {@code content} into pieces of at most {@code maxTokens} estimated tokens each. The
+     * pieces concatenate back to the original content.
+     */
+    public static List<String> split(String fileName, String content, int maxTokens) {
+        if (OpenAIService.estimateTokens(content) <= maxTokens) {
+            return List.of(content);
+        }
+
+        String[] lines = content.split("\n", -1);
+        int[] strength = boundaries(fileName.toLowerCase(Locale.ROOT), lines);
+        // Inverse of OpenAIService.estimateTokens
+        int maxChars = Math.max(1, (maxTokens - 1) * 4);
+
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        // Offset in chunk just after the latest boundary of each strength
+        int[] lastCut = new int[NESTED + 1];
+        Arrays.fill(lastCut, NONE);
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = i < lines.length - 1 ? lines[i] + "\n" : lines[i];
+
+            while (chunk.length() + line.length() > maxChars) {
+                int cut = chooseCut(lastCut, maxChars);
+                if (cut <= 0) {
+                    // No boundary to fall back on: close the chunk, hard-splitting overlong lines
+                    if (!chunk.isEmpty()) {
+                        chunks.add(chunk.toString());
+                        chunk.setLength(0);
+                        Arrays.fill(lastCut, NONE);
+                        continue;
+                    }
+                    chunks.add(line.substring(0, maxChars));
+                    line = line.substring(maxChars);
+                    continue;
+                }
+                chunks.add(chunk.substring(0, cut));
+                chunk.delete(0, cut);
+                for (int level = 0; level < lastCut.length; level++) {
+                    lastCut[level] = lastCut[level] > cut ? lastCut[level] - cut : NONE;
+                }
+            }
+
+            chunk.append(line);
+            if (strength[i] != NONE) {
+                lastCut[strength[i]] = chunk.length();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk.toString());
+        }
+        return chunks;
+    }
+
+    /**
+     * Picks the strongest boundary that still leaves the chunk at least half full, or the latest
+     * boundary of any strength when none does.
+     */
+    private static int chooseCut(int[] lastCut, int maxChars) {
+        int latest = NONE;
+        for (int cut : lastCut) {
+            if (cut >= maxChars / 2) {
+                return cut;
+            }
+            latest = Math.max(latest, cut);
+        }
+        return latest;
+    }
+
+    /**
+     * Strength of the boundary after each line, or {@link #NONE} where the file should not be cut.
+     */
+    private static int[] boundaries(String fileName, String[] lines) {
+        int[] strength = new int[lines.length];
+        Arrays.fill(strength, NONE);
+
+        if (fileName.endsWith(".py")) {
+            for (int i = 1; i < lines.length; i++) {
+                Matcher matcher = PYTHON_DEFINITION.matcher(lines[i]);
+                // Keep decorators attached to the definition they decorate
+                if (matcher.find() && !lines[i - 1].strip().startsWith("@")) {
+                    strength[i - 1] = matcher.group(1).isEmpty() ? TOP_LEVEL : MEMBER;
+                } else if (lines[i - 1].isBlank()) {
+                    strength[i - 1] = BLANK_LINE;
+                }
+            }
+        } else if (fileName.endsWith(".vb")) {
+            for (int i = 0; i < lines.length; i++) {
+                if (VB_TYPE_END.matcher(lines[i]).find()) {
+                    strength[i] = TOP_LEVEL;
+                } else if (VB_MEMBER_END.matcher(lines[i]).find()) {
+                    strength[i] = MEMBER;
+                } else if (lines[i].isBlank()) {
+                    strength[i] = BLANK_LINE;
+                }
+            }
+        } else {
+            braceBoundaries(lines, strength);
+        }
+        return strength;
+    }
+
+    /**
+     * Tracks brace depth for Java, C# and C++, skipping comments and string literals. A namespace
+     * adds a level in C# and C++, so closing back to depth 2 still counts, as weakly as a blank line.
+     */
+    private static void braceBoundaries(String[] lines, int[] strength) {
+        int depth = 0;
+        boolean inComment = false;
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            char quote = 0;
+            boolean closed = false;
+
+            for (int j = 0; j < line.length(); j++) {
+                char c = line.charAt(j);
+                char next = j + 1 < line.length() ? line.charAt(j + 1) : 0;
+                if (inComment) {
+                    if (c == '*' && next == '/') {
+                        inComment = false;
+                        j++;
+                    }
+                } else if (quote != 0) {
+                    if (c == '\\') {
+                        j++;
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '/' && next == '/') {
+                    break;
+                } else if (c == '/' && next == '*') {
+                    inComment = true;
+                    j++;
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth = Math.max(0, depth - 1);
+                    closed = true;
+                }
+            }
+
+            if (inComment) {
+                continue;
+            }
+            if (closed && depth == 0) {
+                strength[i] = TOP_LEVEL;
+            } else if (closed && depth == 1) {
+                strength[i] = MEMBER;
+            } else if (closed && depth == 2) {
+                strength[i] = BLANK_LINE;
+            } else if (depth == 0 && line.strip().endsWith(";")) {
+                strength[i] = TOP_LEVEL;
+            } else if (line.isBlank()) {
+                strength[i] = depth <= 2 ? BLANK_LINE : NESTED;
+            }
+        }
+    }
+}
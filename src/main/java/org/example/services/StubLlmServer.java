@@ -0,0 +1,424 @@
+package org.example.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process OpenAI-compatible chat completions server for load tests and offline runs. It answers
+ * with generated filler text after a configurable latency, emits tokens at a configurable rate
+ * (streamed as server-sent events when the request asks for it), and fails a configurable share of
+ * requests with 429 or 500. Given quotas, it reports them in Groq's {@code x-ratelimit-*} headers: requests
+ * per day and tokens per minute. Batch prompts get one marker line per file, so the generator's request
+ * packing is exercised as it is against a real model. Each request runs on its own virtual thread.
+ */
+public class StubLlmServer implements Closeable {
+    private static final String PATH = "/v1/chat/completions";
+    private static final Pattern FILE_MARKER_LINE = Pattern.compile(
+            "(?m)^" + Pattern.quote(OpenAIService.BATCH_FILE_MARKER) + "(.+) ===$");
+    private static final String[] WORDS = {"the", "method", "returns", "a", "value", "for", "each", "file",
+            "and", "class", "parameter", "handles", "request", "when", "is", "called", "with", "configured"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile Duration latency = Duration.ofMillis(200);
+    private volatile double tokensPerSecond = 200;
+    private volatile int completionTokens = 300;
+    private volatile double rateLimitRate;
+    private volatile double failureRate;
+    private volatile Duration retryAfter = Duration.ofSeconds(1);
+    private volatile int requestsPerDay;
+    private volatile int tokensPerMinute;
+
+    // Fixed quota windows, guarded by this
+    private long dayStartNanos = System.nanoTime();
+    private long minuteStartNanos = dayStartNanos;
+    private long requestsToday;
+    private long tokensThisMinute;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong generatedTokens = new AtomicLong();
+
+    /**
+     * Creates a server on a free loopback port. Call {@link #start()} to accept requests.
+     */
+    public StubLlmServer() throws IOException {
+        this(0);
+    }
+
+    public StubLlmServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Base URL to put in {@code Settings.setBaseUrl}.
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v1";
+    }
+
+    /**
+     * Delay before the first token of every successful response.
+     */
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setTokensPerSecond(double tokensPerSecond) {
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Token rate must be positive");
+        }
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    /**
+     * Length of every answer in tokens. Requests with a lower {@code max_tokens} are cut off there
+     * with {@code finish_reason} "length".
+     */
+    public void setCompletionTokens(int completionTokens) {
+        if (completionTokens <= 0) {
+            throw new IllegalArgumentException("Completion length must be positive");
+        }
+        this.completionTokens = completionTokens;
+    }
+
+    /**
+     * Share of requests, from 0 to 1, answered with 429 and a {@code Retry-After} header.
+     */
+    public void setRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = probability(rateLimitRate);
+    }
+
+    /**
+     * Share of requests, from 0 to 1, answered with 500.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = probability(failureRate);
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Daily request quota reported in the {@code x-ratelimit-*-requests} headers; 0, the default,
+     * sends none. The stub only reports the quota, it does not enforce it.
+     */
+    public void setRequestsPerDay(int requestsPerDay) {
+        this.requestsPerDay = quota(requestsPerDay);
+    }
+
+    /**
+     * Per-minute token quota reported in the {@code x-ratelimit-*-tokens} headers; 0, the default,
+     * sends none.
+     */
+    public void setTokensPerMinute(int tokensPerMinute) {
+        this.tokensPerMinute = quota(tokensPerMinute);
+    }
+
+    /**
+     * Applies settings written as comma-separated {@code key=value} pairs, e.g.
+     * {@code latency-ms=500,tokens-per-second=80,rate-limit=0.05,failure=0.01}. The keys are
+     * {@code latency-ms}, {@code tokens-per-second}, {@code completion-tokens}, {@code rate-limit},
+     * {@code failure}, {@code retry-after-ms}, {@code requests-per-day} and {@code tokens-per-minute}.
+     */
+    public void configure(String spec) {
+        for (String setting : spec.split(",")) {
+            if (setting.isBlank()) {
+                continue;
+            }
+            int equals = setting.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + setting);
+            }
+            String key = setting.substring(0, equals).trim();
+            String value = setting.substring(equals + 1).trim();
+            try {
+                switch (key) {
+                    case "latency-ms" -> setLatency(Duration.ofMillis(Long.parseLong(value)));
+                    case "tokens-per-second" -> setTokensPerSecond(Double.parseDouble(value));
+                    case "completion-tokens" -> setCompletionTokens(Integer.parseInt(value));
+                    case "rate-limit" -> setRateLimitRate(Double.parseDouble(value));
+                    case "failure" -> setFailureRate(Double.parseDouble(value));
+                    case "retry-after-ms" -> setRetryAfter(Duration.ofMillis(Long.parseLong(value)));
+                    case "requests-per-day" -> setRequestsPerDay(Integer.parseInt(value));
+                    case "tokens-per-minute" -> setTokensPerMinute(Integer.parseInt(value));
+                    default -> throw new IllegalArgumentException("Unknown stub setting: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number for " + key + ": " + value);
+            }
+        }
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getGeneratedTokens() {
+        return generatedTokens.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Only POST is supported");
+                return;
+            }
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            requests.incrementAndGet();
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < rateLimitRate) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", Double.toString(retryAfter.toMillis() / 1000.0));
+                sendError(exchange, 429, "Rate limit reached (simulated)");
+                return;
+            }
+            if (random.nextDouble() < failureRate) {
+                failures.incrementAndGet();
+                sendError(exchange, 500, "Internal server error (simulated)");
+                return;
+            }
+
+            StringBuilder prompt = new StringBuilder();
+            for (JsonNode message : request.path("messages")) {
+                prompt.append(message.path("content").asText()).append('\n');
+            }
+            int maxTokens = request.path("max_tokens").asInt(Integer.MAX_VALUE);
+            int tokens = Math.min(completionTokens, maxTokens);
+            String finishReason = completionTokens > maxTokens ? "length" : "stop";
+            List<String> pieces = answer(prompt.toString(), tokens);
+            int promptTokens = OpenAIService.estimateTokens(prompt.toString());
+            putRateLimitHeaders(exchange, promptTokens + pieces.size());
+
+            TimeUnit.NANOSECONDS.sleep(latency.toNanos());
+            if (request.path("stream").asBoolean()) {
+                stream(exchange, request, pieces, promptTokens, finishReason);
+            } else {
+                TimeUnit.NANOSECONDS.sleep((long) (pieces.size() * 1e9 / tokensPerSecond));
+                ObjectNode response = response(request, "chat.completion");
+                ObjectNode choice = response.putArray("choices").addObject();
+                choice.put("index", 0);
+                choice.putObject("message").put("role", "assistant").put("content", String.join("", pieces));
+                choice.put("finish_reason", finishReason);
+                putUsage(response, promptTokens, pieces.size());
+                send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(response));
+            }
+            generatedTokens.addAndGet(pieces.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts the request against the quotas, if any, and reports what is left as Groq does.
+     */
+    private synchronized void putRateLimitHeaders(HttpExchange exchange, int tokens) {
+        long now = System.nanoTime();
+        long day = TimeUnit.DAYS.toNanos(1);
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        if (now - dayStartNanos >= day) {
+            dayStartNanos = now;
+            requestsToday = 0;
+        }
+        if (now - minuteStartNanos >= minute) {
+            minuteStartNanos = now;
+            tokensThisMinute = 0;
+        }
+        requestsToday++;
+        tokensThisMinute += tokens;
+
+        if (requestsPerDay > 0) {
+            exchange.getResponseHeaders().set("x-ratelimit-limit-requests", Integer.toString(requestsPerDay));
+            exchange.getResponseHeaders().set("x-ratelimit-remaining-requests",
+                    Long.toString(Math.max(0, requestsPerDay - requestsToday)));
+            exchange.getResponseHeaders().set("x-ratelimit-reset-requests", formatReset(dayStartNanos + day - now));
+        }
+        if (tokensPerMinute > 0) {
+            exchange.getResponseHeaders().set("x-ratelimit-limit-tokens", Integer.toString(tokensPerMinute));
+            exchange.getResponseHeaders().set("x-ratelimit-remaining-tokens",
+                    Long.toString(Math.max(0, tokensPerMinute - tokensThisMinute)));
+            exchange.getResponseHeaders().set("x-ratelimit-reset-tokens", formatReset(minuteStartNanos + minute - now));
+        }
+    }
+
+    /**
+     * Formats a reset delay the way Groq does, e.g. {@code 2m59.56s}.
+     */
+    static String formatReset(long nanos) {
+        long centis = Math.max(0, (nanos + 9_999_999) / 10_000_000);
+        long hours = centis / 360_000;
+        long minutes = centis / 6000 % 60;
+        StringBuilder reset = new StringBuilder();
+        if (hours > 0) {
+            reset.append(hours).append('h');
+        }
+        if (hours > 0 || minutes > 0) {
+            reset.append(minutes).append('m');
+        }
+        return reset.append(String.format(Locale.ROOT, "%d.%02ds", centis / 100 % 60, centis % 100)).toString();
+    }
+
+    /**
+     * Sends one chunk per token, paced to the configured rate, with usage in the final chunk.
+     */
+    private void stream(HttpExchange exchange, JsonNode request, List<String> pieces, int promptTokens,
+                        String finishReason) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < pieces.size(); i++) {
+            long due = start + (long) ((i + 1) * 1e9 / tokensPerSecond);
+            TimeUnit.NANOSECONDS.sleep(due - System.nanoTime());
+
+            ObjectNode chunk = response(request, "chat.completion.chunk");
+            ObjectNode choice = chunk.putArray("choices").addObject();
+            choice.put("index", 0);
+            choice.putObject("delta").put("content", pieces.get(i));
+            choice.putNull("finish_reason");
+            writeEvent(out, objectMapper.writeValueAsString(chunk));
+        }
+
+        ObjectNode last = response(request, "chat.completion.chunk");
+        ObjectNode choice = last.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("delta");
+        choice.put("finish_reason", finishReason);
+        putUsage(last, promptTokens, pieces.size());
+        writeEvent(out, objectMapper.writeValueAsString(last));
+        writeEvent(out, "[DONE]");
+    }
+
+    /**
+     * Filler documentation of about {@code tokens} tokens, one token per element. Batch prompts
+     * get a marker line and an equal share of the tokens for each file.
+     */
+    private static List<String> answer(String prompt, int tokens) {
+        List<String> files = new ArrayList<>();
+        Matcher marker = FILE_MARKER_LINE.matcher(prompt);
+        while (marker.find()) {
+            files.add(marker.group(1));
+        }
+
+        List<String> pieces = new ArrayList<>(tokens);
+        if (files.isEmpty()) {
+            filler(pieces, tokens);
+            return pieces;
+        }
+        int perFile = Math.max(1, tokens / files.size());
+        for (String file : files) {
+            if (pieces.size() >= tokens) {
+                break;
+            }
+            pieces.add((pieces.isEmpty() ? "" : "\n\n") + OpenAIService.BATCH_FILE_MARKER + file + " ===\n\n");
+            filler(pieces, Math.min(perFile, tokens - pieces.size()));
+        }
+        return pieces;
+    }
+
+    private static void filler(List<String> pieces, int tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        pieces.add("## Overview\n\n");
+        for (int i = 1; i < tokens; i++) {
+            String word = WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+            pieces.add(i % 12 == 0 ? ".\n\n" + word : " " + word);
+        }
+    }
+
+    private ObjectNode response(JsonNode request, String object) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", "stub-" + requests.get());
+        response.put("object", object);
+        response.put("created", System.currentTimeMillis() / 1000);
+        JsonNode model = request.path("model");
+        response.put("model", model.isTextual() ? model.asText() : "stub");
+        return response;
+    }
+
+    private static void putUsage(ObjectNode response, int promptTokens, int completionTokens) {
+        response.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.putObject("error").put("message", message).put("code", status);
+        send(exchange, status, "application/json", objectMapper.writeValueAsBytes(error));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static int quota(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Quota must not be negative");
+        }
+        return value;
+    }
+
+    private static double probability(double value) {
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException("Rate must be between 0 and 1");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.services;
+
+import org.example.backend.Settings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Feeds {@link RateLimiter#update} the {@code x-ratelimit-*} headers of a {@link StubLlmServer}
+ * set up with Groq's quotas: requests per day and tokens per minute.
+ */
+class RateLimiterTest {
+    private StubLlmServer stub;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new StubLlmServer();
+        stub.configure("latency-ms=0,tokens-per-second=100000,completion-tokens=20");
+        stub.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void dailyRequestLimitIsNotTakenAsPerMinute() throws Exception {
+        stub.configure("requests-per-day=14400,tokens-per-minute=5000");
+        RateLimiter limiter = new RateLimiter(30, 6000);
+
+        complete(limiter);
+
+        assertEquals(30, limiter.getRequestsPerMinute());
+        assertEquals(5000, limiter.getTokensPerMinute());
+    }
+
+    @Test
+    void exhaustedDailyQuotaPausesUntilReset() throws Exception {
+        stub.configure("requests-per-day=1");
+        RateLimiter limiter = new RateLimiter(30, 6000);
+
+        complete(limiter);
+
+        assertEquals(30, limiter.getRequestsPerMinute());
+        assertFalse(limiter.acquireAsync(1).isDone());
+    }
+
+    @Test
+    void parsesGroqResetDurations() {
+        assertEquals(Duration.ofMillis(179_560), RateLimiter.parseDuration("2m59.56s"));
+        assertEquals(Duration.ofMillis(7660), RateLimiter.parseDuration("7.66s"));
+        assertEquals(Duration.ofMillis(20), RateLimiter.parseDuration("20ms"));
+        assertEquals(Duration.ofHours(23), RateLimiter.parseDuration(StubLlmServer.formatReset(Duration.ofHours(23).toNanos())));
+    }
+
+    private void complete(RateLimiter limiter) throws Exception {
+        Settings settings = new Settings("", 0.2, 100, "stub");
+        OpenAIService service = new OpenAIService(settings, limiter,
+                URI.create(stub.getBaseUrl() + "/chat/completions"));
+        service.requestCompletion("Document this file.", null);
+    }
+}